@@ -1,31 +1,28 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.List; 
+import java.lang.reflect.Constructor;
 
 /**
  * An abstract class representing shared characteristics of all actors.
+ * 
+ * The state of an actor that passes over all actors need, such as
+ * whether it is alive and its cell, is kept in the ActorStore of its
+ * field. The actor object is a view of its slot there.
  *
  * @author David J. Barnes, Michael Kölling, Ivan Arabadzhiev and Adonis Daskalopulos
  * @version 2021.03.03
  */
 public abstract class Actor
 {
-    // Characteristics shared by all actors (class variables).
-    
-    // Random number generator.
-    private static final Random rand = new Random();
-
     // Characteristics shared by all actors (instance fields).
     
     // The simulation field.
     private Field field;
-    // The actor's location in the field.
-    private Location location;
-    // Whether the actor is alive or not.
-    private boolean alive;
-    // The name of the actor.
-    private String actorName;
-    // The actor's worth as a food source.
-    private int foodValue;
+    // The slot of the actor in the store of the field, or ActorStore.NO_SLOT
+    // once removed. Its species is kept in the slot, its name and food value
+    // are those of its species, and the intent it plans in a two-phase step
+    // is bound to the planning thread (see Intent).
+    private int slot;
     
     /**
      * Create a new actor at location in field with their food value.
@@ -35,10 +32,12 @@ public abstract class Actor
      */
     public Actor(Field field, Location location){
         this.field = field;
+        ActorStore store = field.getActorStore();
+        // The species is needed when the actor is placed in the field.
+        slot = store.add(this, Species.idOf(getClass()));
         setLocation(location);
-        alive = true;
-        actorName = "Actor";
-        foodValue = 0;
+        // A newborn whose cell has been claimed by another actor is not born.
+        store.setFlag(slot, ActorStore.ALIVE, getCell() != Field.NO_CELL);
     }
 
     /**
@@ -46,11 +45,10 @@ public abstract class Actor
      */
     protected void clearFields(){
         Field field = getField();
-        Location location = getLocation();
-        if(location != null) {
-            field.clear(location);
-            location = null;
-            field = null;
+        int cell = getCell();
+        // Only clear the cell if it still holds this actor, it may have been taken over.
+        if(cell != Field.NO_CELL) {
+            field.release(cell, this);
         }
     }
  
@@ -68,6 +66,46 @@ public abstract class Actor
         return getRandom().nextDouble() <= probability;
     }
     
+    /**
+     * Draw the number of tests of a given probability up to and including
+     * the first one that succeeds, from a geometric distribution. Counting
+     * it down and acting when it reaches zero gives the same chances as
+     * calling testProbability every time, with one draw per success.
+     * 
+     * @param probability The probability of a test succeeding.
+     * 
+     * @return The number of tests until the first success, at least 1,
+     *         or Integer.MAX_VALUE if the probability is zero.
+     */
+    protected int drawCountdown(double probability)
+    {
+        if(probability >= 1) {
+            return 1;
+        }
+        if(probability <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        double failures = Math.floor(Math.log(1.0 - getRandom().nextDouble()) / Math.log1p(-probability));
+        return failures >= Integer.MAX_VALUE - 1 ? Integer.MAX_VALUE : (int) failures + 1;
+    }
+    
+    /**
+     * Draw the step at which a test of a given probability, made once in
+     * each step after the given one, first succeeds. Comparing a clock
+     * with it is all a step has to do until then.
+     * 
+     * @param step The step the tests start after.
+     * @param probability The probability of a test succeeding.
+     * 
+     * @return The step of the first success, or Integer.MAX_VALUE if it
+     *         never comes.
+     */
+    protected int drawStep(int step, double probability)
+    {
+        int countdown = drawCountdown(probability);
+        return countdown >= Integer.MAX_VALUE - step ? Integer.MAX_VALUE : step + countdown;
+    }
+    
     /**
      * Whenever an actor dies there is a possibility of them leaving a corpse.
      * 
@@ -80,6 +118,44 @@ public abstract class Actor
         newActors.add(corpse);
     }
     
+    /**
+     * Create a new actor of the same class at a location in the field.
+     * 
+     * @param location The location of the new actor.
+     * 
+     * @return The new actor, or null if it could not be created.
+     */
+    protected Actor createOffspring(Location location)
+    {
+        try
+        {
+            // Uses Java Reflection to make new instances of the Actor subclass calling the method.
+            Constructor<? extends Actor> constructor = getClass().getDeclaredConstructor(Field.class, Location.class);
+            return constructor.newInstance(field, location);
+        }
+        catch(Exception e)
+        {
+            System.out.println(e);
+            return null;
+        }
+    }
+    
+    /**
+     * Return whether the actor does anything at the given time. An actor
+     * that is not active must do nothing at all when asked to act, so that
+     * the simulation can leave it out. A left-out actor is only checked
+     * again when day turns to night or back, so it rests at least until then.
+     * 
+     * @param isDay The time of day. True if day, False otherwise.
+     * @param temperature The temperature of the surrounding.
+     * 
+     * @return True if the actor acts at this time, false if it rests.
+     */
+    public boolean isActive(boolean isDay, double temperature)
+    {
+        return true;
+    }
+    
     // Abstract methods.
     
     /**
@@ -99,8 +175,8 @@ public abstract class Actor
      *  
      * @return The random number generator.
      */
-    protected Random getRandom(){
-        return rand;
+    protected SplittableRandom getRandom(){
+        return Randomizer.getRandom();
     }
     
     // Instance fields accessor methods.
@@ -116,13 +192,24 @@ public abstract class Actor
     }
 
     /**
-     * Return the actor's location.
+     * Return the actor's location as a new Location object.
      * 
      * @return The actor's location.
      */
     protected Location getLocation()
     {
-        return location;
+        return field.locationOf(getCell());
+    }
+    
+    /**
+     * Return the cell index of the actor's location.
+     * 
+     * @return The cell index of the actor's location, or Field.NO_CELL
+     *         if it has been removed from the store.
+     */
+    protected int getCell()
+    {
+        return slot == ActorStore.NO_SLOT ? Field.NO_CELL : getStore().getCell(slot);
     }
 
     /**
@@ -132,18 +219,48 @@ public abstract class Actor
      */
     protected boolean isAlive()
     {
-        return alive;
+        return slot != ActorStore.NO_SLOT && getStore().hasFlag(slot, ActorStore.ALIVE);
+    }
+
+    /**
+     * Return the store that keeps the state of the actor.
+     * 
+     * @return The store of the actor's field.
+     */
+    protected ActorStore getStore()
+    {
+        return field.getActorStore();
+    }
+
+    /**
+     * Return the slot of the actor in its store.
+     * 
+     * @return The slot, or ActorStore.NO_SLOT if the actor has been removed.
+     */
+    protected int getSlot()
+    {
+        return slot;
     }
     
     @Override
     /**
      * Return the object - actor as a String.
      * 
-     * @return A String of the actor object.
+     * @return The name of the actor's species.
      */
     public String toString()
     {
-        return actorName;
+        return Species.getName(getSpecies());
+    }
+    
+    /**
+     * Return the species id of the actor, kept in its slot of the store.
+     * 
+     * @return The species id of the actor.
+     */
+    public int getSpecies()
+    {
+        return slot == ActorStore.NO_SLOT ? Species.idOf(getClass()) : getStore().getSpecies(slot);
     }
     
     /**
@@ -153,7 +270,17 @@ public abstract class Actor
      */
     protected int getFoodValue()
     {
-        return foodValue;
+        return 0;
+    }
+    
+    /**
+     * Return the intent being planned in a two-phase step.
+     * 
+     * @return The intent, or null if the actor acts directly on the field.
+     */
+    protected Intent getIntent()
+    {
+        return Intent.boundTo(this);
     }
     
     // Instance field mutator methods.
@@ -165,40 +292,86 @@ public abstract class Actor
      */
     protected void setLocation(Location newLocation)
     {
-        if(location != null) {
-            field.clear(location);
+        setLocation(field.cellOf(newLocation));
+    }
+    
+    /**
+     * Place the actor in the new cell of the given field.
+     * 
+     * @param newCell The cell index of the actor's new location.
+     */
+    protected void setLocation(int newCell)
+    {
+        moveTo(newCell);
+    }
+    
+    /**
+     * Try to move the actor to the new cell of the given field. The move
+     * only fails if the field resolves conflicting claims and another
+     * actor has claimed the cell first.
+     * 
+     * @param newCell The cell index of the actor's new location.
+     * 
+     * @return True if the actor moved, false if it stays where it is.
+     */
+    protected boolean moveTo(int newCell)
+    {
+        Intent intent = getIntent();
+        if(intent != null) {
+            // Planning: the move is made when the intent is committed.
+            intent.setMove(newCell);
+            return true;
+        }
+        if(field.tryMove(this, getCell(), newCell)) {
+            getStore().setCell(slot, newCell);
+            return true;
         }
-        location = newLocation;
-        field.place(this, newLocation);
+        return false;
     }
     
     /**
-     * Set the String value in the actor's name field.
+     * Change the actor's own state, such as a countdown. While planning
+     * the change is recorded in the intent and made when it is committed,
+     * so the actor is not changed before then.
      * 
-     * @param actorName The name of the actor.
+     * @param update The change.
      */
-    protected void setActorName(String actorName)
+    protected void update(Runnable update)
     {
-        this.actorName = actorName;
+        Intent intent = getIntent();
+        if(intent != null) {
+            intent.addUpdate(update);
+            return;
+        }
+        update.run();
     }
-
+    
     /**
      * Indicate that the actor is no longer alive.
      * It is removed from the field.
      */
     protected void setDead()
     {
-        alive = false;
+        Intent intent = getIntent();
+        if(intent != null) {
+            // Planning: the actor dies when the intent is committed.
+            intent.setDies(false);
+            return;
+        }
+        if(slot != ActorStore.NO_SLOT) {
+            getStore().setFlag(slot, ActorStore.ALIVE, false);
+        }
         clearFields();
     }
     
     /**
-     * Set the value of the food value field.
+     * Move the actor to another slot of its store, or take it out.
+     * Only the store calls this, when it is compacted.
      * 
-     * @param foodValue The actor's worth as a food source.
+     * @param slot The new slot, or ActorStore.NO_SLOT.
      */
-    protected void setFoodValue(int foodValue)
+    protected void setSlot(int slot)
     {
-        this.foodValue = foodValue;
+        this.slot = slot;
     }
 }
@@ -0,0 +1,152 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * The list of actors of a simulation, made for the step loop. Actors that
+ * die during a step stay in the list as tombstones, as does any actor
+ * taken out with bury, and all of them are removed together by compact,
+ * in one pass that keeps the order of the others. Removing one actor at a
+ * time, which shifts the rest of the list, is not supported.
+ *
+ * Newborn actors are added to the end of the list while the step loop
+ * runs over the actors that were there before, so the list itself can
+ * be handed to the actors to receive their young.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class ActorList extends AbstractList<Actor> implements RandomAccess
+{
+    // Instance fields.
+
+    // The actors, and null where one has been buried.
+    private Actor[] actors;
+    // The number of positions in use.
+    private int size;
+
+    /**
+     * Create an empty list.
+     */
+    public ActorList()
+    {
+        actors = new Actor[16];
+        size = 0;
+    }
+
+    /**
+     * Return the actor at a position.
+     *
+     * @param index The position.
+     *
+     * @return The actor, or null if it has been buried.
+     */
+    public Actor get(int index)
+    {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return actors[index];
+    }
+
+    /**
+     * Return the number of positions in use, tombstones included.
+     *
+     * @return The size of the list.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Add an actor to the end of the list.
+     *
+     * @param actor The actor to be added.
+     *
+     * @return True.
+     */
+    public boolean add(Actor actor)
+    {
+        if(size == actors.length) {
+            actors = Arrays.copyOf(actors, size * 2);
+        }
+        actors[size++] = actor;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Take the actor at a position out of the list, leaving a tombstone
+     * until the list is compacted.
+     *
+     * @param index The position.
+     */
+    public void bury(int index)
+    {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        actors[index] = null;
+    }
+
+    /**
+     * Remove all tombstones: the buried positions and the actors that are
+     * no longer alive, in one pass keeping the order of the others.
+     *
+     * @return The number of positions removed.
+     */
+    public int compact()
+    {
+        return compact(actor -> false);
+    }
+
+    /**
+     * Remove every actor the filter takes, as well as all tombstones,
+     * in one pass keeping the order of the others.
+     *
+     * @param filter The test of the living actors to be removed.
+     *
+     * @return True if any position was removed.
+     */
+    public boolean removeIf(Predicate<? super Actor> filter)
+    {
+        return compact(filter) > 0;
+    }
+
+    /**
+     * Remove everything from the list.
+     */
+    public void clear()
+    {
+        Arrays.fill(actors, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Move the actors that are kept down over the removed positions.
+     *
+     * @param filter The test of the living actors to be removed.
+     *
+     * @return The number of positions removed.
+     */
+    private int compact(Predicate<? super Actor> filter)
+    {
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            Actor actor = actors[i];
+            if(actor != null && actor.isAlive() && !filter.test(actor)) {
+                actors[kept++] = actor;
+            }
+        }
+        int removed = size - kept;
+        Arrays.fill(actors, kept, size, null);
+        size = kept;
+        if(removed > 0) {
+            modCount++;
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,422 @@
+import java.util.Arrays;
+
+/**
+ * A store of the state of the actors in a field, kept as parallel arrays
+ * of primitives (a structure of arrays) instead of in the fields of each
+ * actor. Every actor has a slot in the store, and the actor object only
+ * reads and writes its slot, so it is a view of the state kept here.
+ * A pass over one kind of state for all actors, such as their food
+ * levels, then reads one dense array instead of visiting every object.
+ *
+ * The slots are dense: the store holds size slots, numbered from 0.
+ * Slots are added at the end, and the slots of dead actors are removed
+ * by compact, which moves the last slot into each gap (swap-remove).
+ * An actor whose slot has been removed is told so and is no longer alive.
+ *
+ * The arrays are cut into chunks of CHUNK_SIZE slots, and a full chunk
+ * is never copied, so a slot can be added from one thread while others
+ * read and write theirs. Compacting must not overlap with any other use.
+ * A chunk is only made when its first slot is added, and the chunks left
+ * empty by compacting are let go, keeping one spare.
+ *
+ * The store also keeps the traits of each species of organism in it,
+ * so passes over all organisms, such as the MortalityPass, can work out
+ * what holds for a species without visiting any actor.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class ActorStore
+{
+    // Class variables.
+
+    // The slot of an actor that is not in a store.
+    public static final int NO_SLOT = -1;
+    // The flag of a living actor.
+    public static final int ALIVE = 1;
+    // The flag of a female animal.
+    public static final int FEMALE = 1 << 1;
+    // The flag of an infected organism.
+    public static final int INFECTED = 1 << 2;
+    // The flag of an actor resting at the current time of day.
+    public static final int DORMANT = 1 << 3;
+    // The number of bits of a slot used for the index within its chunk.
+    public static final int CHUNK_BITS = 10;
+    // The number of slots of a chunk.
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    // The mask for the index of a slot within its chunk.
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Instance fields.
+
+    // The chunks of the store, or null where no chunk is needed. Written
+    // again whenever an entry is set, to publish the new chunk.
+    private volatile Chunk[] chunks;
+    // The number of slots in use.
+    private int size;
+    // The traits of each species of organism, or null.
+    private SpeciesTraits[] traits;
+
+    /**
+     * Create an empty store.
+     */
+    public ActorStore()
+    {
+        chunks = new Chunk[1];
+        size = 0;
+        traits = new SpeciesTraits[Species.MAX_ID + 1];
+    }
+
+    /**
+     * Add a slot for an actor at the end of the store. The actor starts
+     * out alive, in no cell and with all its other state zero.
+     *
+     * @param actor The actor the slot belongs to.
+     * @param species The species id of the actor.
+     *
+     * @return The slot of the actor.
+     */
+    public synchronized int add(Actor actor, int species)
+    {
+        int slot = size;
+        int index = slot >>> CHUNK_BITS;
+        Chunk[] current = chunks;
+        if(index == current.length) {
+            current = Arrays.copyOf(current, index * 2);
+        }
+        if(current[index] == null) {
+            current[index] = new Chunk();
+            chunks = current;
+        }
+        Chunk chunk = current[index];
+        int i = slot & CHUNK_MASK;
+        chunk.actors[i] = actor;
+        chunk.species[i] = (byte) species;
+        chunk.flags[i] = ALIVE;
+        chunk.cells[i] = Field.NO_CELL;
+        chunk.birthSteps[i] = 0;
+        chunk.foodLevels[i] = 0;
+        chunk.starvationSteps[i] = 0;
+        chunk.decaySteps[i] = 0;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Remove the slots of all actors that are no longer alive, moving the
+     * last slot into each gap, and tell the removed actors they have no
+     * slot. This changes the slots of the moved actors, so it must only
+     * be called when no actor is acting.
+     */
+    public synchronized void compact()
+    {
+        int slot = 0;
+        while(slot < size) {
+            Chunk chunk = chunks[slot >>> CHUNK_BITS];
+            int i = slot & CHUNK_MASK;
+            if((chunk.flags[i] & ALIVE) != 0) {
+                slot++;
+                continue;
+            }
+            chunk.actors[i].setSlot(NO_SLOT);
+            size--;
+            if(slot < size) {
+                Chunk last = chunks[size >>> CHUNK_BITS];
+                int j = size & CHUNK_MASK;
+                chunk.copyFrom(i, last, j);
+                chunk.actors[i].setSlot(slot);
+                last.actors[j] = null;
+            }
+            else {
+                chunk.actors[i] = null;
+            }
+            // The moved slot is checked in the next pass of the loop.
+        }
+        trim();
+    }
+
+    /**
+     * Remove every slot, telling their actors they have no slot.
+     */
+    public synchronized void clear()
+    {
+        for(int slot = 0; slot < size; slot++) {
+            Chunk chunk = chunks[slot >>> CHUNK_BITS];
+            chunk.actors[slot & CHUNK_MASK].setSlot(NO_SLOT);
+            chunk.actors[slot & CHUNK_MASK] = null;
+        }
+        size = 0;
+        trim();
+    }
+
+    /**
+     * Return the number of slots in use, including those of actors that
+     * have died since the last compaction.
+     *
+     * @return The number of slots.
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Record the traits of a species of organism in the store.
+     *
+     * @param species The species id.
+     * @param speciesTraits The traits shared by all members of the species.
+     */
+    public void setTraits(int species, SpeciesTraits speciesTraits)
+    {
+        traits[species] = speciesTraits;
+    }
+
+    /**
+     * Return the traits of a species of organism.
+     *
+     * @param species The species id.
+     *
+     * @return The traits, or null if no organism of the species has
+     *         been added to the store.
+     */
+    public SpeciesTraits getTraits(int species)
+    {
+        return traits[species];
+    }
+
+    /**
+     * Return the chunk holding a slot, for passes that walk through the
+     * arrays of a chunk directly. Slots are numbered chunk by chunk.
+     * Only the first size slots hold actors.
+     *
+     * @param index The index of the chunk, slot >>> CHUNK_BITS.
+     *
+     * @return The chunk.
+     */
+    Chunk getChunk(int index)
+    {
+        return chunks[index];
+    }
+
+    /**
+     * Let go of the chunks past the one after the last slot in use.
+     */
+    private void trim()
+    {
+        Chunk[] current = chunks;
+        int kept = ((size + CHUNK_MASK) >>> CHUNK_BITS) + 1;
+        for(int i = kept; i < current.length && current[i] != null; i++) {
+            current[i] = null;
+        }
+    }
+
+    // Accessor and mutator methods of a slot.
+
+    /**
+     * Return the actor of a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The actor the slot belongs to.
+     */
+    public Actor getActor(int slot)
+    {
+        return chunks[slot >>> CHUNK_BITS].actors[slot & CHUNK_MASK];
+    }
+
+    /**
+     * Return the species id of a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The species id of the actor.
+     */
+    public int getSpecies(int slot)
+    {
+        return chunks[slot >>> CHUNK_BITS].species[slot & CHUNK_MASK];
+    }
+
+    /**
+     * Check whether a flag of a slot is set.
+     *
+     * @param slot The slot.
+     * @param flag The flag, such as ALIVE.
+     *
+     * @return True if the flag is set.
+     */
+    public boolean hasFlag(int slot, int flag)
+    {
+        return (chunks[slot >>> CHUNK_BITS].flags[slot & CHUNK_MASK] & flag) != 0;
+    }
+
+    /**
+     * Set or clear a flag of a slot.
+     *
+     * @param slot The slot.
+     * @param flag The flag, such as ALIVE.
+     * @param on True to set the flag, false to clear it.
+     */
+    public void setFlag(int slot, int flag, boolean on)
+    {
+        byte[] flags = chunks[slot >>> CHUNK_BITS].flags;
+        int i = slot & CHUNK_MASK;
+        flags[i] = (byte) (on ? flags[i] | flag : flags[i] & ~flag);
+    }
+
+    /**
+     * Return the cell of a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The cell index of the actor, or Field.NO_CELL.
+     */
+    public int getCell(int slot)
+    {
+        return chunks[slot >>> CHUNK_BITS].cells[slot & CHUNK_MASK];
+    }
+
+    /**
+     * Set the cell of a slot.
+     *
+     * @param slot The slot.
+     * @param cell The cell index of the actor, or Field.NO_CELL.
+     */
+    public void setCell(int slot, int cell)
+    {
+        chunks[slot >>> CHUNK_BITS].cells[slot & CHUNK_MASK] = cell;
+    }
+
+    /**
+     * Return the birth step of a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The step of the organism's clock in which it was born.
+     */
+    public int getBirthStep(int slot)
+    {
+        return chunks[slot >>> CHUNK_BITS].birthSteps[slot & CHUNK_MASK];
+    }
+
+    /**
+     * Set the birth step of a slot.
+     *
+     * @param slot The slot.
+     * @param birthStep The step of the organism's clock in which it was born.
+     */
+    public void setBirthStep(int slot, int birthStep)
+    {
+        chunks[slot >>> CHUNK_BITS].birthSteps[slot & CHUNK_MASK] = birthStep;
+    }
+
+    /**
+     * Return the stored food level of a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The food level, not counting the food used up since birth.
+     */
+    public int getFoodLevel(int slot)
+    {
+        return chunks[slot >>> CHUNK_BITS].foodLevels[slot & CHUNK_MASK];
+    }
+
+    /**
+     * Set the stored food level of a slot.
+     *
+     * @param slot The slot.
+     * @param foodLevel The food level, not counting the food used up since birth.
+     */
+    public void setFoodLevel(int slot, int foodLevel)
+    {
+        chunks[slot >>> CHUNK_BITS].foodLevels[slot & CHUNK_MASK] = foodLevel;
+    }
+
+    /**
+     * Return the starvation step of a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The step of the organism's clock at whose end it has starved.
+     */
+    public int getStarvationStep(int slot)
+    {
+        return chunks[slot >>> CHUNK_BITS].starvationSteps[slot & CHUNK_MASK];
+    }
+
+    /**
+     * Set the starvation step of a slot.
+     *
+     * @param slot The slot.
+     * @param starvationStep The step of the organism's clock at whose end it has starved.
+     */
+    public void setStarvationStep(int slot, int starvationStep)
+    {
+        chunks[slot >>> CHUNK_BITS].starvationSteps[slot & CHUNK_MASK] = starvationStep;
+    }
+
+    /**
+     * Return the decay step of a slot.
+     *
+     * @param slot The slot.
+     *
+     * @return The last step of the organism's clock before it can die of age.
+     */
+    public int getDecayStep(int slot)
+    {
+        return chunks[slot >>> CHUNK_BITS].decaySteps[slot & CHUNK_MASK];
+    }
+
+    /**
+     * Set the decay step of a slot.
+     *
+     * @param slot The slot.
+     * @param decayStep The last step of the organism's clock before it can die of age.
+     */
+    public void setDecayStep(int slot, int decayStep)
+    {
+        chunks[slot >>> CHUNK_BITS].decaySteps[slot & CHUNK_MASK] = decayStep;
+    }
+
+    /**
+     * The arrays of CHUNK_SIZE consecutive slots.
+     */
+    static class Chunk
+    {
+        // The actor of each slot.
+        final Actor[] actors = new Actor[CHUNK_SIZE];
+        // The species id of each slot.
+        final byte[] species = new byte[CHUNK_SIZE];
+        // The flags of each slot, see ALIVE, FEMALE, INFECTED and DORMANT.
+        final byte[] flags = new byte[CHUNK_SIZE];
+        // The cell index of each slot.
+        final int[] cells = new int[CHUNK_SIZE];
+        // The birth step of each slot.
+        final int[] birthSteps = new int[CHUNK_SIZE];
+        // The food level of each slot, not counting the food used up since birth.
+        final int[] foodLevels = new int[CHUNK_SIZE];
+        // The starvation step of each slot.
+        final int[] starvationSteps = new int[CHUNK_SIZE];
+        // The decay step of each slot.
+        final int[] decaySteps = new int[CHUNK_SIZE];
+
+        /**
+         * Copy one slot of another chunk into a slot of this one.
+         *
+         * @param i The slot within this chunk.
+         * @param from The chunk to copy from.
+         * @param j The slot within the other chunk.
+         */
+        private void copyFrom(int i, Chunk from, int j)
+        {
+            actors[i] = from.actors[j];
+            species[i] = from.species[j];
+            flags[i] = from.flags[j];
+            cells[i] = from.cells[j];
+            birthSteps[i] = from.birthSteps[j];
+            foodLevels[i] = from.foodLevels[j];
+            starvationSteps[i] = from.starvationSteps[j];
+            decaySteps[i] = from.decaySteps[j];
+        }
+    }
+}
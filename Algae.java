@@ -29,6 +29,11 @@ public class Algae extends Plant
     private static final int RERODUCTION_RANGE = 3;
     // The rate of change of death probability.
     private static final double RATE_OF_DECAY = 0.1;
+    // The traits shared by all algae.
+    private static final SpeciesTraits TRAITS = PLANT_TRAITS
+        .withFoodValue(FOOD_VALUE)
+        .withAgeOfDecay(AGE_OF_DECAY)
+        .withRateOfDecay(RATE_OF_DECAY);
     
     
     
@@ -40,12 +45,8 @@ public class Algae extends Plant
      */
     public Algae(Field field, Location location)
     {
-        super(field, location);
-        setActorName("Algae");
-        setAgeOfDecay(AGE_OF_DECAY);
+        super(field, location, TRAITS);
         setVitality(INITIAL_VITALITY);
-        setFoodValue(FOOD_VALUE);
-        setRateOfDecay(RATE_OF_DECAY);
     }
     
     /**
@@ -67,8 +68,7 @@ public class Algae extends Plant
             if(getVitality() <= 0){
                 setDead();
             }
-            incrementAge();
-            decideDeath(newAlgae, temperature);
+            decideDeath(newAlgae);
         }
     }
 }
\ No newline at end of file
@@ -1,6 +1,4 @@
 import java.util.List;
-import java.util.Iterator;
-import java.lang.reflect.*;
 
 /**
  * An abstract class representing shared characteristics of animals.
@@ -20,73 +18,87 @@ public abstract class Animal extends Organism
     private static final double CURE_PROBABILITY = 0.2;
     //  The probability of an animal curing itself from a desease.
     private static final double CORPSE_PROBABILITY = 0.01;
+    // The number of cells an animal tries before giving up on a move.
+    private static final int MOVE_ATTEMPTS = 3;
+    // The traits every species of animal starts from.
+    protected static final SpeciesTraits ANIMAL_TRAITS = new SpeciesTraits()
+        .withDisease(INFECTION_PROBABILITY, SPREADING_PROBABILITY, CURE_PROBABILITY)
+        .withCorpseProbability(CORPSE_PROBABILITY);
 
     // Characteristics shared by all animals (instance fields).    
 
-    // The gender of an animal.
-    private boolean isFemale;
-    // The steps left before next impregnation.
-    private int timeUntilImpregnation;
+    // The step of the animal's clock from which it can be impregnated again.
+    private int pregnantUntilStep;
+    // The gender of the animal is kept in its slot of the ActorStore.
 
     /**
      * Create a new female animal at location in field.
      * 
      * @param field The field currently occupied.
      * @param location The location within the field.
+     * @param traits The traits shared by all members of the species.
      */
-    public Animal(Field field, Location location)
+    public Animal(Field field, Location location, SpeciesTraits traits)
     {
-        super(field, location);
-        isFemale = true;
-        setInfectionProbability(INFECTION_PROBABILITY);
-        setSpreadingProbability(SPREADING_PROBABILITY);
-        setCureProbability(CURE_PROBABILITY);
-        setCorpseProbability(CORPSE_PROBABILITY);
+        super(field, location, traits);
+        getStore().setFlag(getSlot(), ActorStore.FEMALE, true);
+        // The animal was placed before its gender was set.
+        if(getCell() != Field.NO_CELL) {
+            field.reindex(getCell());
+        }
     }
     
     // Generic methods.
     
     /**
      * Look for food source adjacent to the current location.
-     * Only the first live food source is eaten.
+     * One of the adjacent food sources is picked at random and eaten.
      * 
-     * @return Where food was found, or null if it wasn't.
+     * @return The cell where food was found, or Field.NO_CELL if it wasn't.
      */
-    protected Location findFood()
+    protected int findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object obj = field.getObjectAt(where);
-            //empty cell
-            if(obj == null){
-                continue;
-            }
-            //is not part of the diet
-            if(!dietContains(obj.toString())) {
-                continue;   
-            }
-            //is dead
-            Actor food = (Actor) obj;
-            if(!food.isAlive()) {
-                continue;
-             }
-            return eat(where, food);
+        int where = field.randomNeighbour(getCell(), 1, getDietMask());
+        if(where == Field.NO_CELL) {
+            return Field.NO_CELL;
+        }
+        Actor food = (Actor) field.getObjectAt(where);
+        if(food == null || !food.isAlive()) {
+            // Gone or already eaten, in a field updated by others at the same time
+            // or one that only shows changes at the end of the step.
+            return Field.NO_CELL;
         }
-        return null;
+        Intent intent = getIntent();
+        if(intent != null) {
+            // Planning: the meal is only eaten when the intent is committed.
+            intent.setMeal(food, where, getFoodGain(food.getFoodValue()));
+            return isPlant(food) ? Field.NO_CELL : where;
+        }
+        return eat(where, food);
     }
 
     /**
-     * Feed upon a food source and return its location.
+     * Feed upon a food source and return its cell.
      * 
-     * @param where The location of the food source.
+     * @param where The cell of the food source.
      * @param food The food source.
      * 
-     * @return The location of the food source or null if it is a plant.
+     * @return The cell of the food source or Field.NO_CELL if it is a plant.
+     */
+    private int eat(int where, Actor food){
+        feedOn(food);
+        incrementFoodLevel(food.getFoodValue());
+        return isPlant(food) ? Field.NO_CELL : where;
+    }
+
+    /**
+     * Do to a food source what eating it does: an animal or corpse is
+     * killed, a plant loses vitality, and an infection is caught.
+     * 
+     * @param food The food source.
      */
-    private Location eat(Location where, Actor food){
+    protected void feedOn(Actor food){
         if(food instanceof Organism){
             Organism organism = (Organism) food;
             if(organism.isInfected()){
@@ -97,17 +109,45 @@ public abstract class Animal extends Organism
             }
             // Is a Plant - Plants get eaten bit by bit instead of getting killed.
             else{
-                organism.decrementVitality();
-                where = null;
+                ((Plant) organism).decrementVitality();
             }
         }
         else{
             food.setDead(); 
         }
-        incrementFoodLevel(food.getFoodValue());
-        return where;
+    }
+
+    /**
+     * Check whether a food source is a plant, which is eaten without
+     * being killed, so its cell cannot be moved into.
+     * 
+     * @param food The food source.
+     * 
+     * @return True if the food source is a plant, False otherwise.
+     */
+    private boolean isPlant(Actor food)
+    {
+        return food instanceof Organism && !((Organism) food).isAnimal();
     }
     
+    /**
+     * Move to the given cell. If another animal claims it first, which
+     * only happens on a field updated by several threads at once, try
+     * other free adjacent cells before staying where it is.
+     * 
+     * @param newCell The cell to move to.
+     */
+    protected void move(int newCell)
+    {
+        Field field = getField();
+        for(int attempt = 1; !moveTo(newCell) && attempt < MOVE_ATTEMPTS; attempt++) {
+            newCell = field.freeAdjacentCell(getCell());
+            if(newCell == Field.NO_CELL) {
+                return;
+            }
+        }
+    }
+
     /**
      * The process of an animal finding a mate of the same species
      * and of the opposite gender.
@@ -116,26 +156,7 @@ public abstract class Animal extends Organism
      */
     protected boolean foundMate()
     {
-        Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object obj = field.getObjectAt(where);
-            if(obj == null){
-                continue;
-            }
-            
-            if(!toString().equals(obj.toString())) {
-                continue;
-            }
-            Animal mate = (Animal)obj;
-            boolean mateGender = mate.isFemale();
-            if(mate.isAlive() && isFemale() == !mateGender) {
-                return true;
-            }
-        }
-        return false;
+        return getField().hasNeighbour(getCell(), getSpecies(), !isFemale());
     }
 
     /**
@@ -149,19 +170,28 @@ public abstract class Animal extends Organism
             return;
         }
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
-        for(int b = 0; b < litterSize && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            try
-            {
-                // Uses Java Reflection to make new instances of the Animal subclass calling the method.
-                Constructor<? extends Animal> constructor = getClass().getDeclaredConstructor(Field.class, Location.class);
-                Animal newBorn = constructor.newInstance(getField(), loc) ;
-                newAnimals.add(newBorn);
+        Intent intent = getIntent();
+        if(intent != null) {
+            // Planning: claim distinct free cells, the newborns are made when the intent is committed.
+            NeighbourCursor adjacent = field.neighbours(getCell());
+            int claimed = 0;
+            while(claimed < litterSize && adjacent.next()) {
+                if(adjacent.getObject() == null) {
+                    intent.claimBirth(adjacent.getCell());
+                    claimed++;
+                }
+            }
+            return;
+        }
+        for(int b = 0; b < litterSize; b++) {
+            // Each newborn takes one of the cells that are still free.
+            int cell = field.freeAdjacentCell(getCell());
+            if(cell == Field.NO_CELL) {
+                break;
             }
-            catch(Exception e)
-            {
-                System.out.println(e);
+            Actor newBorn = createOffspring(field.locationOf(cell));
+            if(newBorn != null) {
+                newAnimals.add(newBorn);
             }
         }
     }
@@ -184,10 +214,10 @@ public abstract class Animal extends Organism
             return 0;
         }
         int litterSize = 0;
-        timeUntilImpregnation--;
         if(canBreed(breedingAge) && getRandom().nextDouble() <= impregnationProbability) {
             litterSize = getRandom().nextInt(maxLitterSize) + 1;
-            timeUntilImpregnation = pregnancyPeriod;
+            int nextStep = getClock() + pregnancyPeriod;
+            update(() -> pregnantUntilStep = nextStep);
         }
         return litterSize;
     }
@@ -202,7 +232,7 @@ public abstract class Animal extends Organism
      */
     protected boolean canBreed(int breedingAge)
     {
-        return getAge() >= breedingAge && timeUntilImpregnation <= 0;
+        return getAge() >= breedingAge && getClock() >= pregnantUntilStep;
     }
 
     /**
@@ -210,12 +240,16 @@ public abstract class Animal extends Organism
      */
     protected void spreadInfection()
     {
+        Intent intent = getIntent();
+        if(intent != null) {
+            // Planning: the neighbours are infected when the intent is committed.
+            intent.setSpreadsInfection();
+            return;
+        }
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object obj = field.getObjectAt(where);
+        NeighbourCursor adjacent = field.neighbours(getCell());
+        while(adjacent.next()) {
+            Object obj = adjacent.getObject();
             if(obj instanceof Organism){
                 Organism animal = (Organism) obj;
                 if(animal.isAlive() && animal.isAnimal()) { 
@@ -225,38 +259,6 @@ public abstract class Animal extends Organism
         }
     }
     
-    // Class variables accessor methods.
-    
-    /**
-     * Return the infection probability.
-     * 
-     * @return The infection probability.
-     */
-    protected double getInfectionProbability()
-    {
-        return INFECTION_PROBABILITY;
-    }
-
-    /**
-     * Return the spreading probability.
-     * 
-     * @return The spreading probability.
-     */
-    protected double getSpreadingPorbability()
-    {
-        return SPREADING_PROBABILITY;
-    }
-
-    /**
-     * Return the cure probability.
-     * 
-     * @return The cure probability.
-     */
-    protected double getCureProbability()
-    {
-        return CURE_PROBABILITY;
-    }
-
     // Instance fields accessor methods.
 
     /**
@@ -266,7 +268,7 @@ public abstract class Animal extends Organism
      */
     protected int getTimeUntilImpregnation()
     {
-        return timeUntilImpregnation;
+        return Math.max(0, pregnantUntilStep - getClock());
     }
 
     /**
@@ -276,7 +278,7 @@ public abstract class Animal extends Organism
      */
     protected boolean isFemale()
     {
-        return isFemale;
+        return getStore().hasFlag(getSlot(), ActorStore.FEMALE);
     }
 
     // Instance fields mutator methods.
@@ -286,6 +288,8 @@ public abstract class Animal extends Organism
      */
     protected void changeGender()
     {
-        isFemale = !isFemale;
+        getStore().setFlag(getSlot(), ActorStore.FEMALE, !isFemale());
+        // The field keeps track of the gender of its occupants.
+        getField().reindex(getCell());
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+/**
+ * A field that stores its positions in a two dimensional array
+ * of objects, one array per row. Access by row and column is direct;
+ * access by cell index first splits the index into row and column.
+ * 
+ * @author David J. Barnes and Michael Kölling, Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class ArrayField extends Field
+{
+    // Instance fields.
+    
+    // Storage for the animals.
+    private Object[][] field;
+
+    /**
+     * Represent a field of the given dimensions.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public ArrayField(int depth, int width)
+    {
+        super(depth, width);
+        field = new Object[depth][width];
+    }
+    
+    /**
+     * Store an animal in the given cell, or empty the cell.
+     * 
+     * @param cell The cell index of the location.
+     * @param animal The animal to be stored, or null to empty the cell.
+     * @param species The species id of the animal, or Species.NONE.
+     */
+    protected void store(int cell, Object animal, int species)
+    {
+        int row = rowOf(cell);
+        field[row][cell - row * getWidth()] = animal;
+    }
+    
+    /**
+     * Empty every cell of the storage.
+     */
+    protected void removeAll()
+    {
+        for(int row = 0; row < getDepth(); row++) {
+            for(int col = 0; col < getWidth(); col++) {
+                field[row][col] = null;
+            }
+        }
+    }
+    
+    /**
+     * Return the animal at the given location, if any.
+     * 
+     * @param row The desired row.
+     * @param col The desired column.
+     * 
+     * @return The animal at the given location, or null if there is none.
+     */
+    public Object getObjectAt(int row, int col)
+    {
+        return field[row][col];
+    }
+    
+    /**
+     * Return the animal in the given cell, if any.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int cell)
+    {
+        int row = rowOf(cell);
+        return field[row][cell - row * getWidth()];
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Run a simulation without a window, from the command line. The
+ * population of each kind of actor is written as CSV, one row per
+ * reported step, either to a file or to standard output.
+ * 
+ * Usage: java BatchRunner [--depth n] [--width n] [--steps n] [--seed n]
+ *                         [--every n] [--field kind] [--out file]
+ *                         [--engine kind] [--threads n] [--tile n]
+ *                         [--resplit n]
+ * 
+ * The field kind is one of array, flat, tiled, offheap, morton, double
+ * (a DoubleBufferedField, with synchronous updates) or concurrent
+ * (a ConcurrentField, lock-free).
+ * The engine is one of sequential, parallel or two-phase. By default it
+ * is sequential with one thread and parallel with more. The parallel
+ * engine cuts its tiles again every resplit steps so that each holds
+ * about as many actors, or keeps them all the same size if resplit is 0;
+ * its results depend on the tile size and resplit interval but not on
+ * the number of threads, and the time each of its threads was busy is
+ * reported at the end. The two-phase engine's results depend on neither.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class BatchRunner
+{
+    // The default depth of the grid.
+    private static final int DEFAULT_DEPTH = 80;
+    // The default width of the grid.
+    private static final int DEFAULT_WIDTH = 120;
+    // The default number of steps to run for.
+    private static final int DEFAULT_STEPS = 4000;
+    // The default seed of the randomization.
+    private static final long DEFAULT_SEED = 1111;
+    // The default tile size of a parallel run.
+    private static final int DEFAULT_TILE_SIZE = 16;
+    // The default number of steps between two cuts of the parallel tiles.
+    private static final int DEFAULT_RESPLIT = 10;
+    // The amount of steps of a day-night cycle.
+    private static final int DAYNIGHT_CYCLE = 100;
+    // The amount the average temperature increases per day-night cycle.
+    private static final double TEMP_INCREASE = 1;
+    // The kinds of actor whose population is reported.
+    private static final List<Class<? extends Actor>> REPORTED = List.of(
+        Shark.class, Turtle.class, Dolphin.class, SmallFish.class,
+        Crab.class, Seagrass.class, Algae.class, Corpse.class
+    );
+    
+    /**
+     * Run a simulation as described by the command line arguments.
+     * 
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args)
+    {
+        int depth = DEFAULT_DEPTH;
+        int width = DEFAULT_WIDTH;
+        int steps = DEFAULT_STEPS;
+        long seed = DEFAULT_SEED;
+        int every = 1;
+        String kind = "array";
+        String out = null;
+        int threads = 1;
+        String engine = null;
+        int tileSize = DEFAULT_TILE_SIZE;
+        int resplit = DEFAULT_RESPLIT;
+        try {
+            for(int i = 0; i < args.length; i += 2) {
+                if(i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                String value = args[i + 1];
+                switch(args[i]) {
+                    case "--depth": depth = Integer.parseInt(value); break;
+                    case "--width": width = Integer.parseInt(value); break;
+                    case "--steps": steps = Integer.parseInt(value); break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--every": every = Integer.parseInt(value); break;
+                    case "--field": kind = value; break;
+                    case "--out": out = value; break;
+                    case "--engine": engine = value; break;
+                    case "--threads": threads = Integer.parseInt(value); break;
+                    case "--tile": tileSize = Integer.parseInt(value); break;
+                    case "--resplit": resplit = Integer.parseInt(value); break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if(depth <= 0 || width <= 0 || steps < 0 || every <= 0 || threads <= 0) {
+                throw new IllegalArgumentException("Sizes, steps, threads and reporting interval must be positive.");
+            }
+            Randomizer.setSeed(seed);
+            Simulator simulator = new Simulator(createField(kind, depth, width), DAYNIGHT_CYCLE, TEMP_INCREASE, false);
+            if(engine == null) {
+                engine = threads > 1 ? "parallel" : "sequential";
+            }
+            try(StepEngine stepEngine = createEngine(engine, threads, tileSize, resplit)) {
+                simulator.setEngine(stepEngine);
+                PrintWriter writer = out == null ? new PrintWriter(System.out) : new PrintWriter(out);
+                long start = System.nanoTime();
+                run(simulator, steps, every, writer);
+                long elapsed = System.nanoTime() - start;
+                writer.close();
+                System.err.printf("%d steps in %.2f s (%.1f steps/s)%n", simulator.getStep(),
+                                  elapsed / 1e9, simulator.getStep() / (elapsed / 1e9));
+                if(stepEngine instanceof ParallelEngine) {
+                    reportWorkers((ParallelEngine) stepEngine);
+                }
+            }
+        }
+        catch(IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java BatchRunner [--depth n] [--width n] [--steps n] [--seed n]"
+                               + " [--every n] [--field array|flat|tiled|offheap|morton|double|concurrent] [--out file]"
+                               + " [--engine sequential|parallel|two-phase] [--threads n] [--tile n] [--resplit n]");
+        }
+        catch(FileNotFoundException e) {
+            System.err.println("Cannot write to " + out + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Run a simulation for a number of steps, or until it stops
+     * being viable, writing the population as it goes.
+     * 
+     * @param simulator The simulation to run.
+     * @param steps The number of steps to run for.
+     * @param every The number of steps between reported rows.
+     * @param writer Where the rows are written.
+     */
+    private static void run(Simulator simulator, int steps, int every, PrintWriter writer)
+    {
+        writer.print("step,daytime,temperature");
+        for(Class<? extends Actor> actorClass : REPORTED) {
+            writer.print(',');
+            writer.print(actorClass.getName());
+        }
+        writer.println();
+        report(simulator, writer);
+        while(simulator.getStep() < steps && simulator.isViable()) {
+            simulator.simulateOneStep();
+            if(simulator.getStep() % every == 0) {
+                report(simulator, writer);
+            }
+        }
+        if(simulator.getStep() % every != 0) {
+            report(simulator, writer);
+        }
+    }
+    
+    /**
+     * Write one row with the state of the simulation.
+     * 
+     * @param simulator The simulation to report on.
+     * @param writer Where the row is written.
+     */
+    private static void report(Simulator simulator, PrintWriter writer)
+    {
+        writer.print(simulator.getStep());
+        writer.print(',');
+        writer.print(simulator.getDayTime());
+        writer.print(',');
+        writer.printf("%.2f", simulator.getTemperature());
+        for(Class<? extends Actor> actorClass : REPORTED) {
+            writer.print(',');
+            writer.print(simulator.getCount(actorClass));
+        }
+        writer.println();
+    }
+    
+    /**
+     * Write the time each worker of a parallel engine was busy and idle
+     * while the tiles were being run.
+     * 
+     * @param engine The engine to report on.
+     */
+    private static void reportWorkers(ParallelEngine engine)
+    {
+        long total = engine.getParallelTime();
+        System.err.printf("parallel time %.1f ms%n", total / 1e6);
+        System.err.println("worker,busy_ms,idle_ms");
+        for(Map.Entry<String, Long> entry : engine.getBusyTimes().entrySet()) {
+            long busy = entry.getValue();
+            System.err.printf("%s,%.1f,%.1f%n", entry.getKey(), busy / 1e6, (total - busy) / 1e6);
+        }
+    }
+    
+    /**
+     * Create an engine of the given kind.
+     * 
+     * @param kind The kind of engine.
+     * @param threads The number of threads.
+     * @param tileSize The tile size of a parallel engine.
+     * @param resplit The number of steps between two cuts of the tiles of
+     *                a parallel engine, or 0 for tiles of equal size.
+     * 
+     * @return The new engine.
+     */
+    private static StepEngine createEngine(String kind, int threads, int tileSize, int resplit)
+    {
+        switch(kind) {
+            case "sequential": return new SequentialEngine();
+            case "parallel": return new ParallelEngine(tileSize, threads, resplit);
+            case "two-phase": return new TwoPhaseEngine(threads);
+            default: throw new IllegalArgumentException("Unknown engine " + kind);
+        }
+    }
+    
+    /**
+     * Create a field with the given kind of storage.
+     * 
+     * @param kind The kind of storage.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * 
+     * @return The new field.
+     */
+    private static Field createField(String kind, int depth, int width)
+    {
+        switch(kind) {
+            case "array": return new ArrayField(depth, width);
+            case "flat": return new FlatField(depth, width);
+            case "tiled": return new TiledField(depth, width);
+            case "offheap": return new OffHeapField(depth, width);
+            case "morton": return new MortonField(depth, width);
+            case "double": return new DoubleBufferedField(depth, width);
+            case "concurrent": return new ConcurrentField(depth, width);
+            default: throw new IllegalArgumentException("Unknown field kind " + kind);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A field that can be changed from many threads at once without a lock.
+ * Every cell is an element of an AtomicReferenceArray. A cell is claimed
+ * with a compare-and-set from empty, and emptied with a compare-and-set
+ * from its occupant, so two animals can never end up in the same cell
+ * and an animal never removes another one by mistake.
+ *
+ * A move claims the new cell before it empties the old one, so for a
+ * moment the animal can be seen in both. A move into a cell that is not
+ * empty fails, and the mover can try another cell.
+ *
+ * The field keeps no dense indices, as they could not be updated in the
+ * same atomic step; its queries scan the cells.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class ConcurrentField extends Field
+{
+    // Instance fields.
+
+    // The animal in each cell.
+    private AtomicReferenceArray<Object> cells;
+
+    /**
+     * Represent a field of the given dimensions.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public ConcurrentField(int depth, int width)
+    {
+        super(depth, width, false);
+        cells = new AtomicReferenceArray<>(depth * width);
+    }
+
+    /**
+     * Return the animal in the given cell, if any.
+     *
+     * @param cell The cell index of the location.
+     *
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int cell)
+    {
+        return cells.get(cell);
+    }
+
+    /**
+     * Clear the given cell, whatever it holds.
+     *
+     * @param cell The cell index of the location to clear.
+     */
+    public void clear(int cell)
+    {
+        cells.set(cell, null);
+    }
+
+    /**
+     * Place an animal in the given cell, in one atomic write.
+     * If there is already an animal in the cell it will be lost.
+     *
+     * @param animal The animal to be placed.
+     * @param cell The cell index of the location.
+     */
+    public void place(Object animal, int cell)
+    {
+        cells.set(cell, animal);
+    }
+
+    /**
+     * Empty the given cell if it still holds the given animal.
+     *
+     * @param cell The cell index of the location.
+     * @param animal The animal expected in the cell.
+     *
+     * @return True if the cell held the animal and was emptied.
+     */
+    public boolean release(int cell, Object animal)
+    {
+        return cells.compareAndSet(cell, animal, null);
+    }
+
+    /**
+     * Move an animal to another cell if that cell is empty.
+     *
+     * @param animal The animal to be moved.
+     * @param from The cell the animal is in, or NO_CELL if it is new.
+     * @param to The cell the animal moves to.
+     *
+     * @return True if the animal was moved, false if the cell was taken.
+     */
+    public boolean tryMove(Object animal, int from, int to)
+    {
+        if(from == to) {
+            return true;
+        }
+        if(!cells.compareAndSet(to, null, animal)) {
+            return false;
+        }
+        if(from != NO_CELL) {
+            cells.compareAndSet(from, animal, null);
+        }
+        return true;
+    }
+
+    /**
+     * Store an animal in the given cell, or empty the cell.
+     *
+     * @param cell The cell index of the location.
+     * @param animal The animal to be stored, or null to empty the cell.
+     * @param species The species id of the animal, or Species.NONE.
+     */
+    protected void store(int cell, Object animal, int species)
+    {
+        cells.set(cell, animal);
+    }
+
+    /**
+     * Empty every cell of the storage.
+     */
+    protected void removeAll()
+    {
+        for(int i = 0; i < cells.length(); i++) {
+            cells.set(i, null);
+        }
+    }
+}
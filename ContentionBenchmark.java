@@ -0,0 +1,171 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A benchmark of moves made by many threads on the same field. Each
+ * thread owns a set of walkers and keeps moving them to random free
+ * adjacent cells. On a ConcurrentField every move is a compare-and-set
+ * claim and a failed claim is retried with another cell; on the default
+ * field every move is made under one lock. A smaller field gives more
+ * contention.
+ *
+ * Run with: java ContentionBenchmark [size] [density] [moves per thread]
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class ContentionBenchmark
+{
+    // The default side of the (square) field.
+    private static final int DEFAULT_SIZE = 64;
+    // The default fraction of cells holding a walker.
+    private static final double DEFAULT_DENSITY = 0.3;
+    // The default number of moves made by each thread.
+    private static final int DEFAULT_MOVES = 500000;
+    // The thread counts that are measured.
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+    // The seed of the random placement.
+    private static final int SEED = 1111;
+
+    /**
+     * Run the benchmark and print the moves per second for each
+     * field and number of threads.
+     *
+     * @param args The field size, density and moves per thread, all optional.
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        double density = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_DENSITY;
+        int moves = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MOVES;
+        System.out.println("field,threads,moves_per_s,failed_claims_pct,walkers_lost");
+        for(int threads : THREAD_COUNTS) {
+            run("cas", new ConcurrentField(size, size), false, threads, density, moves);
+            run("locked", new ArrayField(size, size), true, threads, density, moves);
+        }
+    }
+
+    /**
+     * Measure one field with one number of threads.
+     *
+     * @param name The name printed for the field.
+     * @param field The field to be used.
+     * @param locked Whether every move is made under a lock on the field.
+     * @param threads The number of threads.
+     * @param density The fraction of cells holding a walker.
+     * @param moves The number of moves made by each thread.
+     */
+    private static void run(String name, Field field, boolean locked, int threads,
+                            double density, int moves) throws InterruptedException
+    {
+        // Deal the walkers out to the threads in turn.
+        SplittableRandom rand = new SplittableRandom(SEED);
+        int[][] walkers = new int[threads][field.getCellCount()];
+        int[] counts = new int[threads];
+        int next = 0;
+        for(int cell = 0; cell < field.getCellCount(); cell++) {
+            if(rand.nextDouble() < density) {
+                int owner = next++ % threads;
+                Object walker = new Object();
+                field.place(walker, cell);
+                walkers[owner][counts[owner]++] = cell;
+            }
+        }
+
+        long[] failures = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                Randomizer.bind(new SplittableRandom(SEED + id));
+                try {
+                    start.await();
+                    failures[id] = walk(field, locked, walkers[id], counts[id], moves);
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    Randomizer.unbind();
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for(Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        long failed = 0;
+        for(long f : failures) {
+            failed += f;
+        }
+        // Every walker should still be in the field exactly once.
+        int placed = 0;
+        for(int count : counts) {
+            placed += count;
+        }
+        int found = 0;
+        for(int cell = 0; cell < field.getCellCount(); cell++) {
+            if(field.getObjectAt(cell) != null) {
+                found++;
+            }
+        }
+        long total = (long) moves * threads;
+        System.out.printf("%s,%d,%.0f,%.2f,%d%n", name, threads, total / (elapsed / 1e9),
+                          100.0 * failed / (total + failed), placed - found);
+    }
+
+    /**
+     * Keep moving the walkers of one thread.
+     *
+     * @param field The field to be used.
+     * @param locked Whether every move is made under a lock on the field.
+     * @param cells The cells of the thread's walkers, updated as they move.
+     * @param count The number of walkers.
+     * @param moves The number of moves to make.
+     *
+     * @return The number of claims that failed and were retried.
+     */
+    private static long walk(Field field, boolean locked, int[] cells, int count, int moves)
+    {
+        if(count == 0) {
+            return 0;
+        }
+        SplittableRandom rand = Randomizer.getRandom();
+        long failed = 0;
+        for(int m = 0; m < moves; m++) {
+            int i = rand.nextInt(count);
+            int from = cells[i];
+            Object walker = field.getObjectAt(from);
+            if(locked) {
+                // Look for a cell and take it without letting go of the lock.
+                synchronized(field) {
+                    int to = field.freeAdjacentCell(from);
+                    if(to != Field.NO_CELL && field.tryMove(walker, from, to)) {
+                        cells[i] = to;
+                    }
+                }
+                continue;
+            }
+            boolean moved = false;
+            while(!moved) {
+                int to = field.freeAdjacentCell(from);
+                if(to == Field.NO_CELL) {
+                    break;
+                }
+                moved = field.tryMove(walker, from, to);
+                if(moved) {
+                    cells[i] = to;
+                }
+                else {
+                    failed++;
+                }
+            }
+        }
+        return failed;
+    }
+}
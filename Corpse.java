@@ -6,7 +6,7 @@ import java.util.List;
  * @author Ivan Arabadzhiev and Adonis Daskalopulos
  * @version 2021.03.03
  */
-public class Corpse extends Actor
+public class Corpse extends Actor implements Expiring
 {
     // Characteristics shared by all animals (class variables)
     
@@ -14,6 +14,11 @@ public class Corpse extends Actor
     private static final double DECOMPOSITION_PROBABILITY = 0.1;
     // The corpse's worth as a food source.
     private static final int FOOD_VALUE = 4;
+    
+    // Characteristics of each corpse (instance fields)
+    
+    // The step of the field at which the corpse decomposes.
+    private int decompositionStep;
 
     /**
      * Create a new corpse at a location in field, after an organism has died.
@@ -24,12 +29,13 @@ public class Corpse extends Actor
     public Corpse(Field field, Location location)
     {
         super(field, location);
-        setActorName("Corpse");
-        setFoodValue(FOOD_VALUE);
+        decompositionStep = drawStep(field.getStep(), DECOMPOSITION_PROBABILITY);
     }
 
     /**
-     * This is what the corpses do - decomposing over time.
+     * This is what the corpses do - decomposing over time. The step in
+     * which it decomposes is drawn when the corpse is made. A simulation
+     * does not call this, but holds the corpse until its lifetime is over.
      * 
      * @param newCoprses A list to return new corpses.
      * @param isDay The time of day.
@@ -38,9 +44,29 @@ public class Corpse extends Actor
     public void act(List<Actor> newCoprses, boolean isDay, double temperature)
     { 
         if(isAlive()){
-            if(testProbability(DECOMPOSITION_PROBABILITY)){
+            if(getField().getStep() >= decompositionStep){
                 setDead();
             }
         }
     }
+    
+    /**
+     * Return the food value of the corpse.
+     * 
+     * @return The food value of the corpse.
+     */
+    protected int getFoodValue()
+    {
+        return FOOD_VALUE;
+    }
+    
+    /**
+     * Return the number of steps left until the corpse decomposes.
+     * 
+     * @return The lifetime of the corpse, at least 1.
+     */
+    public int getLifetime()
+    {
+        return Math.max(1, decompositionStep - getField().getStep());
+    }
 }
\ No newline at end of file
@@ -36,6 +36,15 @@ public class Crab extends Animal
     private static final int PREGNANCY_PERIOD = 5;
     // The rate of change of death probability.
     private static final double RATE_OF_DECAY = 0.1;
+    // The traits shared by all crabs.
+    private static final SpeciesTraits TRAITS = ANIMAL_TRAITS
+        .withFoodValue(FOOD_VALUE)
+        .withAgeOfDecay(AGE_OF_DECAY)
+        .withMaxFoodLevel(MAX_FOOD_LEVEL)
+        .withDiet(DEFAULT_DIET)
+        .withTemperatures(MIN_TEMP, MAX_TEMP)
+        .withRateOfDecay(RATE_OF_DECAY)
+        .withDayClock();
 
     /**
      * Create a new crab. A crab is created with age
@@ -46,19 +55,11 @@ public class Crab extends Animal
      */
     public Crab(Field field, Location location)
     {
-        super(field, location);
-        setActorName("Crab");
+        super(field, location, TRAITS);
         if(getRandom().nextDouble() <= MALE_TO_FEMALE_RATIO){
             changeGender();
         }
-        setAgeOfDecay(AGE_OF_DECAY);
-        setMaxFoodLevel(MAX_FOOD_LEVEL);
-        setDiet(DEFAULT_DIET);
         incrementFoodLevel(getMaxFoodLevel());
-        setFoodValue(FOOD_VALUE);
-        setMaxTemp(MAX_TEMP);
-        setMinTemp(MIN_TEMP);
-        setRateOfDecay(RATE_OF_DECAY);
     }   
 
     /**
@@ -84,24 +85,35 @@ public class Crab extends Animal
                     spreadInfection();
                 }
                 // Try to find one of its food sources.
-                Location newLocation = findFood();
-                if(newLocation == null) { 
+                int newCell = findFood();
+                if(newCell == Field.NO_CELL) { 
                     // No food found.
-                    newLocation = getField().freeAdjacentLocation(getLocation());
+                    newCell = getField().freeAdjacentCell(getCell());
                 }
                 // Try to move to a new location.
-                if(newLocation != null) {
-                    setLocation(newLocation);
+                if(newCell != Field.NO_CELL) {
+                    move(newCell);
                 }
                 else {
                     // Overcrowding.
                     leaveCorpseAfterDeath(newCrabs);
                     return;
                 }
-                incrementAge();
-                decrementFoodLevel();
-                decideDeath(newCrabs, temperature);
+                decideDeath(newCrabs);
             }
         }
     }
+    
+    /**
+     * The crab only acts during the day, and rests at night.
+     * 
+     * @param isDay The time of day.
+     * @param temperature The temperature of the surrounding.
+     * 
+     * @return True if it is day.
+     */
+    public boolean isActive(boolean isDay, double temperature)
+    {
+        return isDay;
+    }
 }
\ No newline at end of file
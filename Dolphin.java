@@ -30,6 +30,12 @@ public class Dolphin extends Animal
     private static final int PREGNANCY_PERIOD = 6;   
     // The rate of change of death probability.
     private static final double RATE_OF_DECAY = 0.1;
+    // The traits shared by all dolphins.
+    private static final SpeciesTraits TRAITS = ANIMAL_TRAITS
+        .withAgeOfDecay(AGE_OF_DECAY)
+        .withMaxFoodLevel(MAX_FOOD_LEVEL)
+        .withDiet(DEFAULT_DIET)
+        .withRateOfDecay(RATE_OF_DECAY);
 
     /**
      * Create a dolphin. A dolphin can be created as a new born (age zero
@@ -40,16 +46,11 @@ public class Dolphin extends Animal
      */
     public Dolphin(Field field, Location location)
     {
-        super(field, location);
-        setActorName("Dolphin");
+        super(field, location, TRAITS);
         if(getRandom().nextDouble() <= MALE_TO_FEMALE_RATIO){
             changeGender();
         }
-        setAgeOfDecay(AGE_OF_DECAY);
-        setMaxFoodLevel(MAX_FOOD_LEVEL);
-        setDiet(DEFAULT_DIET);
         incrementFoodLevel(getMaxFoodLevel()/2);
-        setRateOfDecay(RATE_OF_DECAY);
     }
 
     /**
@@ -75,22 +76,20 @@ public class Dolphin extends Animal
                 spreadInfection();
             }
             // Try to find one of its food sources.
-            Location newLocation = findFood();
-            if(newLocation == null) { 
+            int newCell = findFood();
+            if(newCell == Field.NO_CELL) { 
                 // No food found.
-                newLocation = getField().freeAdjacentLocation(getLocation());
+                newCell = getField().freeAdjacentCell(getCell());
             }
             // Try to move to a new location.
-            if(newLocation != null) {
-                setLocation(newLocation);
+            if(newCell != Field.NO_CELL) {
+                move(newCell);
             }
             else {
                 // Overcrowding.
                 leaveCorpseAfterDeath(newDoplhins);
             }
-            incrementAge();
-            decrementFoodLevel();
-            decideDeath(newDoplhins, temperature);
+            decideDeath(newDoplhins);
         }
     }
 }
\ No newline at end of file
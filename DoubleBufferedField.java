@@ -0,0 +1,150 @@
+import java.util.Arrays;
+
+/**
+ * A field with synchronous update semantics. It keeps two buffers: the
+ * read buffer holds the state at the start of the step, and every change
+ * made during the step goes to the write buffer. Neighbourhood queries
+ * (food, mates, infection) see the read buffer only, so no actor sees
+ * what another has done in the same step. When the step ends the write
+ * buffer becomes the new read buffer.
+ *
+ * A cell is only free to be moved into, or born in, if it is empty in
+ * both buffers, so an actor cannot take a cell that another is leaving
+ * in the same step. If two actors still claim the same cell, the first
+ * claim wins and the other actor stays where it is (a newborn is then
+ * not born).
+ *
+ * The field keeps no dense indices, as they could only describe one of
+ * the buffers; its queries scan the read buffer.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class DoubleBufferedField extends Field
+{
+    // Instance fields.
+
+    // The animal in each cell at the start of the step.
+    private Object[] readObjects;
+    // The species id of the animal in each cell at the start of the step.
+    private byte[] readSpecies;
+    // The animal in each cell once the step is over.
+    private Object[] writeObjects;
+    // The species id of the animal in each cell once the step is over.
+    private byte[] writeSpecies;
+
+    /**
+     * Represent a field of the given dimensions.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public DoubleBufferedField(int depth, int width)
+    {
+        super(depth, width, false);
+        readObjects = new Object[depth * width];
+        readSpecies = new byte[depth * width];
+        writeObjects = new Object[depth * width];
+        writeSpecies = new byte[depth * width];
+    }
+
+    /**
+     * Return the animal in the given cell at the start of the step, if any.
+     *
+     * @param cell The cell index of the location.
+     *
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int cell)
+    {
+        return readObjects[cell];
+    }
+
+    /**
+     * Return the species id of the animal in the given cell at the start of the step.
+     *
+     * @param cell The cell index of the location.
+     *
+     * @return The species id of the animal, or Species.NONE if the cell is empty.
+     */
+    public int getSpeciesAt(int cell)
+    {
+        return readSpecies[cell];
+    }
+
+    /**
+     * Return the animal that the given cell holds once the step is over.
+     *
+     * @param cell The cell index of the location.
+     *
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getNextObjectAt(int cell)
+    {
+        return writeObjects[cell];
+    }
+
+    /**
+     * Move an animal to another cell, unless another animal has
+     * already claimed it during this step.
+     *
+     * @param animal The animal to be moved.
+     * @param from The cell the animal is in, or NO_CELL if it is new.
+     * @param to The cell the animal moves to.
+     *
+     * @return True if the animal was moved, false if it stays where it is.
+     */
+    public synchronized boolean tryMove(Object animal, int from, int to)
+    {
+        Object claimant = writeObjects[to];
+        if(claimant != null && claimant != animal) {
+            return false;
+        }
+        return super.tryMove(animal, from, to);
+    }
+
+    /**
+     * Make the changes of the step visible to the queries of the next one.
+     */
+    public void endStep()
+    {
+        System.arraycopy(writeObjects, 0, readObjects, 0, writeObjects.length);
+        System.arraycopy(writeSpecies, 0, readSpecies, 0, writeSpecies.length);
+    }
+
+    /**
+     * Check whether a cell is free in both buffers.
+     *
+     * @param cell The cell index of the location.
+     *
+     * @return True if the cell is empty now and once the step is over.
+     */
+    protected boolean isFree(int cell)
+    {
+        return readObjects[cell] == null && writeObjects[cell] == null;
+    }
+
+    /**
+     * Store an animal in the given cell of the write buffer, or empty the cell.
+     *
+     * @param cell The cell index of the location.
+     * @param animal The animal to be stored, or null to empty the cell.
+     * @param species The species id of the animal, or Species.NONE.
+     */
+    protected void store(int cell, Object animal, int species)
+    {
+        writeObjects[cell] = animal;
+        writeSpecies[cell] = (byte) species;
+    }
+
+    /**
+     * Empty every cell of both buffers.
+     */
+    protected void removeAll()
+    {
+        Arrays.fill(readObjects, null);
+        Arrays.fill(readSpecies, (byte) Species.NONE);
+        Arrays.fill(writeObjects, null);
+        Arrays.fill(writeSpecies, (byte) Species.NONE);
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * An actor whose only job is to expire after a while, such as a corpse.
+ * The simulation does not let such an actor act every step: it holds it
+ * in a timer wheel instead, and removes it from the field once its
+ * lifetime is over, unless it has been removed before (e.g. eaten).
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public interface Expiring
+{
+    /**
+     * Return the number of steps the actor lasts. It is removed in the
+     * step that many steps after the one it was made in.
+     *
+     * @return The lifetime of the actor, at least 1.
+     */
+    int getLifetime();
+}
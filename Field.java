@@ -1,52 +1,162 @@
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal.
  * 
+ * The way the positions are stored is left to the subclasses, so that
+ * different storage layouts can be used behind the same interface.
+ * 
+ * By default the field also keeps dense indices of its contents (occupancy
+ * bitboards and free-neighbour masks) to answer neighbourhood queries
+ * quickly. Subclasses that cannot afford memory proportional to the grid
+ * can do without them, and the queries then scan the neighbourhood.
+ * 
  * @author David J. Barnes and Michael Kölling, Ivan Arabadzhiev and Adonis Daskalopulos
  * @version 2021.03.03
  */
-public class Field
+public abstract class Field
 {
     //Class variables.
     
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
+    // The cell index used when there is no cell, e.g. no free adjacent cell.
+    public static final int NO_CELL = -1;
+    // The largest radius the occupancy boards can answer queries for.
+    public static final int MAX_BOARD_RADIUS = 31;
     
     // Instance fields.
     
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the animals.
-    private Object[][] field;
+    // The cursor handed out for traversals of neighbouring locations, one per thread.
+    private ThreadLocal<NeighbourCursor> cursors;
+    // The species occupying each cell, kept up to date by place and clear.
+    private OccupancyBoards boards;
+    // The free adjacent cells of each cell, kept up to date by place and clear.
+    private NeighbourMasks freeMasks;
+    // The current step of the simulation, 0 before the first one.
+    private int step;
+    // The number of steps so far that were run during the day.
+    private int daySteps;
+    // The state of the actors living in the field.
+    private ActorStore actorStore;
 
     /**
      * Represent a field of the given dimensions.
+     * Every position of the field has a cell index, row * width + col,
+     * so the field cannot hold more positions than an int can index.
      * 
      * @param depth The depth of the field.
      * @param width The width of the field.
      */
     public Field(int depth, int width)
     {
+        this(depth, width, true);
+    }
+    
+    /**
+     * Represent a field of the given dimensions, with or without the
+     * dense indices of its contents.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param indexed Whether to keep occupancy bitboards and free-neighbour masks.
+     */
+    protected Field(int depth, int width, boolean indexed)
+    {
+        if((long) depth * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field too large: " + depth + " x " + width);
+        }
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width];
+        cursors = ThreadLocal.withInitial(() -> new NeighbourCursor(this));
+        actorStore = new ActorStore();
+        if(indexed) {
+            boards = new OccupancyBoards(depth, width);
+            freeMasks = new NeighbourMasks(depth, width);
+        }
+    }
+    
+    /**
+     * Return the cell index of the given location.
+     * 
+     * @param row The row of the location.
+     * @param col The column of the location.
+     * 
+     * @return The cell index of the location.
+     */
+    public int cellOf(int row, int col)
+    {
+        return row * width + col;
+    }
+    
+    /**
+     * Return the cell index of the given location.
+     * 
+     * @param location The location.
+     * 
+     * @return The cell index of the location.
+     */
+    public int cellOf(Location location)
+    {
+        return cellOf(location.getRow(), location.getCol());
+    }
+    
+    /**
+     * Return the row of the given cell.
+     * 
+     * @param cell The cell index.
+     * 
+     * @return The row of the cell.
+     */
+    public int rowOf(int cell)
+    {
+        return cell / width;
+    }
+    
+    /**
+     * Return the column of the given cell.
+     * 
+     * @param cell The cell index.
+     * 
+     * @return The column of the cell.
+     */
+    public int colOf(int cell)
+    {
+        return cell % width;
     }
     
     /**
-     * Empty the field.
+     * Return the given cell as a new Location object.
+     * 
+     * @param cell The cell index.
+     * 
+     * @return The location of the cell, or null if the cell is NO_CELL.
+     */
+    public Location locationOf(int cell)
+    {
+        if(cell == NO_CELL) {
+            return null;
+        }
+        return new Location(rowOf(cell), colOf(cell));
+    }
+    
+    /**
+     * Empty the field and set its clock back to step 0.
      */
     public void clear()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
-            }
+        step = 0;
+        daySteps = 0;
+        actorStore.clear();
+        removeAll();
+        if(isIndexed()) {
+            boards.clear();
+            freeMasks.clear();
         }
     }
     
@@ -57,7 +167,37 @@ public class Field
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        clear(cellOf(location));
+    }
+    
+    /**
+     * Clear the given location.
+     * 
+     * @param row Row coordinate of the location.
+     * @param col Column coordinate of the location.
+     */
+    public void clear(int row, int col)
+    {
+        clear(cellOf(row, col));
+    }
+    
+    /**
+     * Clear the given cell.
+     * 
+     * @param cell The cell index of the location to clear.
+     */
+    public void clear(int cell)
+    {
+        Object animal = getNextObjectAt(cell);
+        if(animal != null) {
+            if(isIndexed()) {
+                int row = rowOf(cell);
+                int col = cell - row * width;
+                boards.unmark(row, col, Species.idOf(animal));
+                freeMasks.release(row, col);
+            }
+            store(cell, null, Species.NONE);
+        }
     }
     
     /**
@@ -71,7 +211,7 @@ public class Field
      */
     public void place(Object animal, int row, int col)
     {
-        place(animal, new Location(row, col));
+        place(animal, cellOf(row, col));
     }
     
     /**
@@ -84,7 +224,82 @@ public class Field
      */
     public void place(Object animal, Location location)
     {
-        field[location.getRow()][location.getCol()] = animal;
+        place(animal, cellOf(location));
+    }
+    
+    /**
+     * Place an animal in the given cell.
+     * If there is already an animal in the cell it will
+     * be lost.
+     * 
+     * @param animal The animal to be placed.
+     * @param cell The cell index of the location.
+     */
+    public void place(Object animal, int cell)
+    {
+        clear(cell);
+        if(animal != null) {
+            int species = Species.idOf(animal);
+            store(cell, animal, species);
+            if(isIndexed()) {
+                int row = rowOf(cell);
+                int col = cell - row * width;
+                boards.mark(row, col, species, isFemale(animal));
+                freeMasks.occupy(row, col);
+            }
+        }
+    }
+    
+    /**
+     * Bring the occupancy boards up to date after the animal in the
+     * given cell has changed in a way they record, e.g. its gender.
+     * 
+     * @param cell The cell index of the location.
+     */
+    public void reindex(int cell)
+    {
+        if(isIndexed()) {
+            place(getNextObjectAt(cell), cell);
+        }
+    }
+    
+    /**
+     * Empty the given cell if it still holds the given animal.
+     * 
+     * @param cell The cell index of the location.
+     * @param animal The animal expected in the cell.
+     * 
+     * @return True if the cell held the animal and was emptied.
+     */
+    public boolean release(int cell, Object animal)
+    {
+        if(getNextObjectAt(cell) != animal) {
+            return false;
+        }
+        clear(cell);
+        return true;
+    }
+    
+    /**
+     * Move an animal from one cell to another, unless the target cell
+     * has already been claimed. Whatever is in the target cell is
+     * replaced, as when a predator takes the place of its prey; only
+     * fields that resolve conflicting claims, such as a
+     * DoubleBufferedField, ever refuse a move.
+     * 
+     * @param animal The animal to be moved.
+     * @param from The cell the animal is in, or NO_CELL if it is new.
+     * @param to The cell the animal moves to.
+     * 
+     * @return True if the animal was moved, false if it stays where it is.
+     */
+    public boolean tryMove(Object animal, int from, int to)
+    {
+        if(from != NO_CELL) {
+            clear(from);
+        }
+        place(animal, to);
+        return true;
     }
     
     /**
@@ -96,7 +311,7 @@ public class Field
      */
     public Object getObjectAt(Location location)
     {
-        return getObjectAt(location.getRow(), location.getCol());
+        return getObjectAt(cellOf(location));
     }
     
     /**
@@ -109,7 +324,67 @@ public class Field
      */
     public Object getObjectAt(int row, int col)
     {
-        return field[row][col];
+        return getObjectAt(cellOf(row, col));
+    }
+    
+    /**
+     * Return the animal in the given cell, if any.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public abstract Object getObjectAt(int cell);
+    
+    /**
+     * Return the animal that the given cell holds once the current
+     * step is over. This is the same as getObjectAt, except in fields
+     * where changes only become visible at the end of a step.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getNextObjectAt(int cell)
+    {
+        return getObjectAt(cell);
+    }
+    
+    /**
+     * Check whether a cell is free to be moved into or born in.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return True if the cell is free.
+     */
+    protected boolean isFree(int cell)
+    {
+        return getObjectAt(cell) == null;
+    }
+    
+    /**
+     * Return the species id of the animal at the given location.
+     * 
+     * @param row The desired row.
+     * @param col The desired column.
+     * 
+     * @return The species id of the animal, or Species.NONE if the location is empty.
+     */
+    public int getSpeciesAt(int row, int col)
+    {
+        return getSpeciesAt(cellOf(row, col));
+    }
+    
+    /**
+     * Return the species id of the animal in the given cell.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The species id of the animal, or Species.NONE if the cell is empty.
+     */
+    public int getSpeciesAt(int cell)
+    {
+        return Species.idOf(getObjectAt(cell));
     }
        
     /**
@@ -124,8 +399,11 @@ public class Field
      */
     public Location randomAdjacentLocation(Location location)
     {
-        List<Location> adjacent = adjacentLocations(location);
-        return adjacent.get(0);
+        NeighbourCursor adjacent = neighbours(location);
+        if(adjacent.next()) {
+            return adjacent.getLocation();
+        }
+        return null;
     }
     
     /**
@@ -140,7 +418,7 @@ public class Field
         List<Location> free = new LinkedList<>();
         List<Location> adjacent = adjacentLocations(location);
         for(Location next : adjacent) {
-            if(getObjectAt(next) == null) {
+            if(isFree(cellOf(next))) {
                 free.add(next);
             }
         }
@@ -159,14 +437,115 @@ public class Field
      */
     public Location freeAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
+        return locationOf(freeAdjacentCell(cellOf(location)));
+    }
+    
+    /**
+     * Try to find a free cell that is adjacent to the
+     * given cell. Every free adjacent cell is equally likely
+     * to be picked. If there is none, return NO_CELL.
+     * 
+     * @param cell The cell from which to generate an adjacency.
+     * 
+     * @return A free adjacent cell, or NO_CELL.
+     */
+    public int freeAdjacentCell(int cell)
+    {
+        if(!isIndexed()) {
+            NeighbourCursor adjacent = neighbours(cell);
+            while(adjacent.next()) {
+                if(isFree(adjacent.getCell())) {
+                    return adjacent.getCell();
+                }
+            }
+            return NO_CELL;
         }
-        else {
-            return null;
+        int mask = freeMasks.getMask(cell);
+        if(mask == 0) {
+            return NO_CELL;
+        }
+        int direction = NeighbourMasks.selectDirection(mask, Randomizer.getRandom().nextInt(Integer.bitCount(mask)));
+        return freeMasks.adjacentCell(cell, direction);
+    }
+    
+    /**
+     * Check whether any cell adjacent to the given cell is free.
+     * 
+     * @param cell The cell from which to look around.
+     * 
+     * @return True if there is a free adjacent cell.
+     */
+    public boolean hasFreeAdjacentCell(int cell)
+    {
+        if(!isIndexed()) {
+            return freeAdjacentCell(cell) != NO_CELL;
         }
+        return freeMasks.getMask(cell) != 0;
+    }
+    
+    /**
+     * Start a traversal of the locations adjacent to the given one, in
+     * a random order. The traversal will not include the location itself
+     * and all locations will lie within the grid.
+     * The same cursor is handed out by every call on a thread, so only one
+     * traversal per thread can be in progress at a time.
+     * 
+     * @param location The location from which to traverse adjacencies.
+     * 
+     * @return A cursor over the adjacent locations.
+     */
+    public NeighbourCursor neighbours(Location location)
+    {
+        return neighbours(cellOf(location), 1);
+    }
+    
+    /**
+     * Start a traversal of the locations within the given radius of the
+     * given one, in a random order. The traversal will not include the
+     * location itself and all locations will lie within the grid.
+     * The same cursor is handed out by every call on a thread, so only one
+     * traversal per thread can be in progress at a time.
+     * 
+     * @param location The location from which to traverse adjacencies.
+     * @param radius The range reaching surrounding cells.
+     * 
+     * @return A cursor over the surrounding locations.
+     */
+    public NeighbourCursor neighbours(Location location, int radius)
+    {
+        assert location != null : "Null location passed to neighbours";
+        return neighbours(cellOf(location), radius);
+    }
+    
+    /**
+     * Start a traversal of the cells adjacent to the given one, in
+     * a random order.
+     * 
+     * @param cell The cell from which to traverse adjacencies.
+     * 
+     * @return A cursor over the adjacent cells.
+     * @see #neighbours(Location)
+     */
+    public NeighbourCursor neighbours(int cell)
+    {
+        return neighbours(cell, 1);
+    }
+    
+    /**
+     * Start a traversal of the cells within the given radius of the
+     * given one, in a random order.
+     * 
+     * @param cell The cell from which to traverse adjacencies.
+     * @param radius The range reaching surrounding cells.
+     * 
+     * @return A cursor over the surrounding cells.
+     * @see #neighbours(Location, int)
+     */
+    public NeighbourCursor neighbours(int cell, int radius)
+    {
+        NeighbourCursor cursor = cursors.get();
+        cursor.reset(rowOf(cell), colOf(cell), radius);
+        return cursor;
     }
     
     /**
@@ -182,7 +561,7 @@ public class Field
     {
         assert location != null : "Null location passed to adjacentLocations";
         // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
+        List<Location> locations = new ArrayList<>();
         if(location != null) {
             int row = location.getRow();
             int col = location.getCol();
@@ -201,7 +580,7 @@ public class Field
             
             // Shuffle the list. Several other methods rely on the list
             // being in a random order.
-            Collections.shuffle(locations, rand);
+            shuffle(locations);
         }
         return locations;
     }
@@ -220,7 +599,7 @@ public class Field
     {
         assert location != null : "Null location passed to adjacentLocations";
         // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
+        List<Location> locations = new ArrayList<>();
         if(location != null) {
             int row = location.getRow();
             int col = location.getCol();
@@ -238,11 +617,25 @@ public class Field
             }           
             // Shuffle the list. Several other methods rely on the list
             // being in a random order.
-            Collections.shuffle(locations, rand);
+            shuffle(locations);
         }
         return locations;
     }
     
+    /**
+     * Put a list of locations in a random order, drawn from the random
+     * stream of the current thread.
+     * 
+     * @param locations The locations to be shuffled.
+     */
+    private static void shuffle(List<Location> locations)
+    {
+        SplittableRandom rand = Randomizer.getRandom();
+        for(int i = locations.size() - 1; i > 0; i--) {
+            Collections.swap(locations, i, rand.nextInt(i + 1));
+        }
+    }
+    
     /**
      * Get a shuffled list of the free adjacent locations.
      * 
@@ -256,7 +649,7 @@ public class Field
         List<Location> free = new LinkedList<>();
         List<Location> adjacent = adjacentLocations(location, radius);
         for(Location next : adjacent) {
-            if(getObjectAt(next) == null) {
+            if(isFree(cellOf(next))) {
                 free.add(next);
             }
         }
@@ -270,19 +663,238 @@ public class Field
      * of the field.
      * 
      * @param location The location from which to generate an adjacency.
+     * @param radius The range reaching surrounding cells.
      * 
      * @return A valid location within the grid area.
      */
     public Location freeAdjacentLocation(Location location, int radius)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location, radius);
-        if(free.size() > 0) {
-            return free.get(0);
+        return locationOf(freeAdjacentCell(cellOf(location), radius));
+    }
+    
+    /**
+     * Try to find a free cell within the given radius of the given
+     * cell. Every free cell is equally likely to be picked.
+     * If there is none, return NO_CELL.
+     * 
+     * @param cell The cell from which to generate an adjacency.
+     * @param radius The range reaching surrounding cells.
+     * 
+     * @return A free cell within the radius, or NO_CELL.
+     */
+    public int freeAdjacentCell(int cell, int radius)
+    {
+        if(radius == 1) {
+            return freeAdjacentCell(cell);
         }
-        else {
-            return null;
+        if(isIndexed() && radius <= MAX_BOARD_RADIUS) {
+            // Count the free cells on the occupancy boards, then pick one.
+            int row = rowOf(cell);
+            int col = cell - row * width;
+            int freeCount = boards.countFree(row, col, radius);
+            if(freeCount == 0) {
+                return NO_CELL;
+            }
+            return boards.selectFree(row, col, radius, Randomizer.getRandom().nextInt(freeCount));
+        }
+        // Pick one of the free cells with equal chance, without
+        // collecting them first (reservoir sampling).
+        NeighbourCursor adjacent = neighbours(cell, radius);
+        SplittableRandom rand = Randomizer.getRandom();
+        int freeCount = 0;
+        int freeCell = NO_CELL;
+        while(adjacent.next()) {
+            if(isFree(adjacent.getCell())) {
+                freeCount++;
+                if(rand.nextInt(freeCount) == 0) {
+                    freeCell = adjacent.getCell();
+                }
+            }
+        }
+        return freeCell;
+    }
+    
+    /**
+     * Count the free cells within the given radius of the given cell.
+     * The cell itself is not counted.
+     * 
+     * @param cell The cell from which to look around.
+     * @param radius The range reaching surrounding cells.
+     * 
+     * @return The number of free cells.
+     */
+    public int countFreeCells(int cell, int radius)
+    {
+        if(isIndexed() && radius <= MAX_BOARD_RADIUS) {
+            int row = rowOf(cell);
+            return boards.countFree(row, cell - row * width, radius);
+        }
+        int count = 0;
+        NeighbourCursor adjacent = neighbours(cell, radius);
+        while(adjacent.next()) {
+            if(isFree(adjacent.getCell())) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Pick one of the cells within the given radius of a cell that hold
+     * one of the given species. Every such cell is equally likely to be
+     * picked. On an indexed field this only looks at the occupancy boards,
+     * not at the cells.
+     * 
+     * @param cell The cell from which to look around.
+     * @param radius The range reaching surrounding cells.
+     * @param speciesMask The species to look for, see Species.maskOf.
+     * 
+     * @return A matching cell, or NO_CELL if there is none.
+     */
+    public int randomNeighbour(int cell, int radius, long speciesMask)
+    {
+        if(!isIndexed() || radius > MAX_BOARD_RADIUS) {
+            // Pick one of the matching cells with equal chance (reservoir sampling).
+            NeighbourCursor adjacent = neighbours(cell, radius);
+            SplittableRandom rand = Randomizer.getRandom();
+            int count = 0;
+            int chosen = NO_CELL;
+            while(adjacent.next()) {
+                int next = adjacent.getCell();
+                if((Species.maskOf(getSpeciesAt(next)) & speciesMask) != 0) {
+                    count++;
+                    if(rand.nextInt(count) == 0) {
+                        chosen = next;
+                    }
+                }
+            }
+            return chosen;
+        }
+        int row = rowOf(cell);
+        int col = cell - row * width;
+        int count = boards.count(row, col, radius, speciesMask);
+        if(count == 0) {
+            return NO_CELL;
         }
+        return boards.select(row, col, radius, speciesMask, Randomizer.getRandom().nextInt(count));
+    }
+    
+    /**
+     * Check whether an animal of the given species and gender is adjacent
+     * to the given cell. On an indexed field this only looks at the
+     * occupancy boards.
+     * 
+     * @param cell The cell from which to look around.
+     * @param species The species id to look for.
+     * @param female True to look for a female, false to look for a male.
+     * 
+     * @return True if there is such an animal.
+     */
+    public boolean hasNeighbour(int cell, int species, boolean female)
+    {
+        if(!isIndexed()) {
+            NeighbourCursor adjacent = neighbours(cell);
+            while(adjacent.next()) {
+                Object animal = adjacent.getObject();
+                if(Species.idOf(animal) == species && isFemale(animal) == female) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int row = rowOf(cell);
+        return boards.hasAdjacent(row, cell - row * width, species, female);
+    }
+    
+    /**
+     * Tell the field that a simulation step starts, and move its clock on.
+     * Actors work out their age and food level from the clock when they
+     * need them, instead of updating them every step.
+     * 
+     * @param isDay Whether the step is run during the day.
+     */
+    public void startStep(boolean isDay)
+    {
+        step++;
+        if(isDay) {
+            daySteps++;
+        }
+    }
+    
+    /**
+     * Return the current step of the simulation.
+     * 
+     * @return The number of steps started since the field was cleared.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+    
+    /**
+     * Return the number of steps run during the day, counting the current
+     * one if it is.
+     * 
+     * @return The number of day steps started since the field was cleared.
+     */
+    public int getDaySteps()
+    {
+        return daySteps;
+    }
+    
+    /**
+     * Return the store that keeps the state of the actors in the field.
+     * 
+     * @return The actor store of the field.
+     */
+    public ActorStore getActorStore()
+    {
+        return actorStore;
+    }
+    
+    /**
+     * Tell the field that a simulation step is over. Subclasses can use
+     * this to tidy up their storage.
+     */
+    public void endStep()
+    {
+    }
+    
+    /**
+     * Check whether the field keeps dense indices of its contents.
+     * 
+     * @return True if the occupancy bitboards and free-neighbour masks are kept.
+     */
+    public boolean isIndexed()
+    {
+        return boards != null;
+    }
+    
+    /**
+     * Store an animal in the given cell, or empty the cell.
+     * This is where subclasses keep the contents of the field.
+     * 
+     * @param cell The cell index of the location.
+     * @param animal The animal to be stored, or null to empty the cell.
+     * @param species The species id of the animal, or Species.NONE.
+     */
+    protected abstract void store(int cell, Object animal, int species);
+    
+    /**
+     * Empty every cell of the storage.
+     */
+    protected abstract void removeAll();
+    
+    /**
+     * Check whether an object placed in the field is a female animal.
+     * 
+     * @param animal The object placed in the field.
+     * 
+     * @return True if it is a female animal.
+     */
+    private static boolean isFemale(Object animal)
+    {
+        return animal instanceof Animal && ((Animal) animal).isFemale();
     }
     
     /**
@@ -304,4 +916,14 @@ public class Field
     {
         return width;
     }
+    
+    /**
+     * Return the number of cells in the field.
+     * 
+     * @return The number of cells in the field.
+     */
+    public int getCellCount()
+    {
+        return depth * width;
+    }
 }
\ No newline at end of file
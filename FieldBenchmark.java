@@ -0,0 +1,188 @@
+import java.util.Random;
+
+/**
+ * A small benchmark comparing neighbourhood queries over row-major
+ * storage (ArrayField) and Z-order storage (MortonField). Each field is
+ * filled to the same density with the same random pattern, and then
+ * every cell has its neighbourhood scanned cell by cell, at radius 1
+ * and 3, and is asked the queries the simulator runs: finding food and
+ * a free cell to move to at radius 1, checking for a mate, and finding
+ * a free cell at radius 5 as Seagrass does when it reproduces.
+ * 
+ * Run with: java FieldBenchmark [sizes...]
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class FieldBenchmark
+{
+    // The grid sizes (square) used when none are given.
+    private static final int[] DEFAULT_SIZES = {128, 512, 2048};
+    // The radii that are scanned cell by cell.
+    private static final int[] RADII = {1, 3};
+    // The names of the simulator's queries.
+    private static final String[] QUERIES = {"food", "move", "mate", "seed-5"};
+    // The probability that a cell is occupied.
+    private static final double DENSITY = 0.3;
+    // The seed of the random fill pattern.
+    private static final int SEED = 1111;
+    // The number of untimed passes before the timed ones.
+    private static final int WARMUP_PASSES = 3;
+    // The number of timed passes.
+    private static final int TIMED_PASSES = 5;
+    
+    // Keeps the results of the scans alive, so they are not optimised away.
+    private static long sink;
+    
+    /**
+     * Run the benchmark and print the time per scanned cell.
+     * 
+     * @param args The grid sizes to be used, or none for the defaults.
+     */
+    public static void main(String[] args)
+    {
+        int[] sizes = DEFAULT_SIZES;
+        if(args.length > 0) {
+            sizes = new int[args.length];
+            for(int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.println("size,query,layout,ns_per_cell");
+        for(int size : sizes) {
+            Field rowMajor = fill(new ArrayField(size, size));
+            Field morton = fill(new MortonField(size, size));
+            for(int radius : RADII) {
+                String query = "scan-" + radius;
+                report(size, query, "row-major", time(rowMajor, query, radius));
+                report(size, query, "z-order", time(morton, query, radius));
+            }
+            for(String query : QUERIES) {
+                report(size, query, "row-major", time(rowMajor, query, 0));
+                report(size, query, "z-order", time(morton, query, 0));
+            }
+        }
+        if(sink == 42) {
+            System.out.println();
+        }
+    }
+    
+    /**
+     * Fill a field with placeholder objects, using the same
+     * random pattern every time.
+     * 
+     * @param field The field to be filled.
+     * 
+     * @return The filled field.
+     */
+    private static Field fill(Field field)
+    {
+        Random rand = new Random(SEED);
+        Object occupant = new Object();
+        for(int row = 0; row < field.getDepth(); row++) {
+            for(int col = 0; col < field.getWidth(); col++) {
+                if(rand.nextDouble() <= DENSITY) {
+                    field.place(occupant, row, col);
+                }
+            }
+        }
+        return field;
+    }
+    
+    /**
+     * Time a query of the neighbourhood of every cell of a field.
+     * 
+     * @param field The field to be queried.
+     * @param query The name of the query, or "scan-" and the radius.
+     * @param radius The radius of each scanned neighbourhood.
+     * 
+     * @return The best time per cell over the timed passes, in nanoseconds.
+     */
+    private static double time(Field field, String query, int radius)
+    {
+        long best = Long.MAX_VALUE;
+        for(int pass = 0; pass < WARMUP_PASSES + TIMED_PASSES; pass++) {
+            long start = System.nanoTime();
+            sink += query.startsWith("scan") ? scan(field, radius) : query(field, query);
+            long elapsed = System.nanoTime() - start;
+            if(pass >= WARMUP_PASSES) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return (double) best / field.getCellCount();
+    }
+    
+    /**
+     * Count the occupied neighbours of every cell of a field.
+     * 
+     * @param field The field to be scanned.
+     * @param radius The radius of each neighbourhood.
+     * 
+     * @return The total number of occupied neighbours found.
+     */
+    private static long scan(Field field, int radius)
+    {
+        long found = 0;
+        for(int row = 0; row < field.getDepth(); row++) {
+            for(int col = 0; col < field.getWidth(); col++) {
+                for(int dr = -radius; dr <= radius; dr++) {
+                    int r = row + dr;
+                    if(r >= 0 && r < field.getDepth()) {
+                        for(int dc = -radius; dc <= radius; dc++) {
+                            int c = col + dc;
+                            if(c >= 0 && c < field.getWidth() && field.getObjectAt(r, c) != null) {
+                                found++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Ask one of the simulator's queries about every cell of a field.
+     * 
+     * @param field The field to be queried.
+     * @param query The name of the query.
+     * 
+     * @return A total of the answers, so the queries are not optimised away.
+     */
+    private static long query(Field field, String query)
+    {
+        int occupant = Species.idOf(Object.class);
+        long diet = Species.maskOf(occupant);
+        long found = 0;
+        for(int cell = 0; cell < field.getCellCount(); cell++) {
+            switch(query) {
+                case "food":
+                    found += field.randomNeighbour(cell, 1, diet);
+                    break;
+                case "move":
+                    found += field.freeAdjacentCell(cell);
+                    break;
+                case "mate":
+                    found += field.hasNeighbour(cell, occupant, false) ? 1 : 0;
+                    break;
+                default:
+                    found += field.freeAdjacentCell(cell, 5);
+                    break;
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Print one line of results.
+     * 
+     * @param size The grid size.
+     * @param query The name of the query.
+     * @param layout The name of the storage layout.
+     * @param nanos The time per cell, in nanoseconds.
+     */
+    private static void report(int size, String query, String layout, double nanos)
+    {
+        System.out.printf("%d,%s,%s,%.2f%n", size, query, layout, nanos);
+    }
+}
@@ -1,5 +1,4 @@
 import java.awt.Color;
-import java.util.HashMap;
 
 /**
  * This class collects and provides some statistical data on the state 
@@ -13,8 +12,9 @@ public class FieldStats
 {
     // Instance fields.
     
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private HashMap<Class, Counter> counters;
+    // Counters for each type of entity (fox, rabbit, etc.) in the simulation,
+    // indexed by species id.
+    private Counter[] counters;
     // Whether the counters are currently up to date.
     private boolean countsValid;
 
@@ -25,7 +25,7 @@ public class FieldStats
     {
         // Set up a collection for counters for each type of animal that
         // we might find
-        counters = new HashMap<>();
+        counters = new Counter[Species.MAX_ID + 1];
         countsValid = true;
     }
 
@@ -41,8 +41,10 @@ public class FieldStats
             generateCounts(field);
         }
         
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
+        for(Counter info : counters) {
+            if(info == null) {
+                continue;
+            }
             buffer.append(info.getName());
             buffer.append(": ");
             buffer.append(info.getCount());
@@ -51,6 +53,26 @@ public class FieldStats
         return buffer.toString();
     }
     
+    /**
+     * Return the number of actors of one class in the field.
+     * 
+     * @param field The field to count in.
+     * @param animalClass The class of actor to count.
+     * 
+     * @return The number of actors of that class.
+     */
+    public int getCount(Field field, Class<?> animalClass)
+    {
+        if(!countsValid) {
+            generateCounts(field);
+        }
+        Counter count = counters[Species.idOf(animalClass)];
+        if(count == null) {
+            return 0;
+        }
+        return count.getCount();
+    }
+    
     /**
      * Invalidate the current set of statistics; reset all 
      * counts to zero.
@@ -58,25 +80,26 @@ public class FieldStats
     public void reset()
     {
         countsValid = false;
-        for(Class key : counters.keySet()) {
-            Counter count = counters.get(key);
-            count.reset();
+        for(Counter count : counters) {
+            if(count != null) {
+                count.reset();
+            }
         }
     }
 
     /**
-     * Increment the count for one class of actor.
+     * Increment the count for one species of actor.
      * 
-     * @param animalClass The class of animal to increment.
+     * @param species The species id of the animal to increment.
      */
-    public void incrementCount(Class animalClass)
+    public void incrementCount(int species)
     {
-        Counter count = counters.get(animalClass);
+        Counter count = counters[species];
         if(count == null) {
             // We do not have a counter for this species yet.
             // Create one.
-            count = new Counter(animalClass.getName());
-            counters.put(animalClass, count);
+            count = new Counter(Species.getName(species));
+            counters[species] = count;
         }
         count.increment();
     }
@@ -103,9 +126,8 @@ public class FieldStats
             generateCounts(field);
         }
         
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
-            if(info.getCount() > 0) {
+        for(Counter info : counters) {
+            if(info != null && info.getCount() > 0) {
                 nonZero++;
             }
         }
@@ -125,9 +147,9 @@ public class FieldStats
         reset();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
+                int species = field.getSpeciesAt(row, col);
+                if(species != Species.NONE) {
+                    incrementCount(species);
                 }
             }
         }
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+/**
+ * A field that stores its positions in flat primitive arrays.
+ * Each position holds an integer handle of the animal placed there
+ * and the species id of that animal. Positions are laid out row by
+ * row, so the position of (row, col) is row * width + col.
+ * 
+ * Handles are indices into a table of the placed objects. Handle zero
+ * marks an empty position.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class FlatField extends Field
+{
+    // Instance fields.
+    
+    // The handle of the animal at each position.
+    private int[] handles;
+    // The species id of the animal at each position.
+    private byte[] species;
+    // The placed animals, indexed by handle.
+    private HandleTable objects;
+
+    /**
+     * Represent a field of the given dimensions.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public FlatField(int depth, int width)
+    {
+        super(depth, width);
+        handles = new int[depth * width];
+        species = new byte[depth * width];
+        objects = new HandleTable();
+    }
+    
+    /**
+     * Store an animal in the given cell, or empty the cell.
+     * 
+     * @param cell The cell index of the location.
+     * @param animal The animal to be stored, or null to empty the cell.
+     * @param species The species id of the animal, or Species.NONE.
+     */
+    protected void store(int cell, Object animal, int species)
+    {
+        int handle = handles[cell];
+        if(handle != HandleTable.EMPTY) {
+            objects.release(handle);
+        }
+        handles[cell] = animal == null ? HandleTable.EMPTY : objects.acquire(animal);
+        this.species[cell] = (byte) species;
+    }
+    
+    /**
+     * Empty every cell of the storage.
+     */
+    protected void removeAll()
+    {
+        Arrays.fill(handles, HandleTable.EMPTY);
+        Arrays.fill(species, (byte) Species.NONE);
+        objects.clear();
+    }
+    
+    /**
+     * Return the animal in the given cell, if any.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int cell)
+    {
+        return objects.get(handles[cell]);
+    }
+    
+    /**
+     * Return the species id of the animal in the given cell.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The species id of the animal, or Species.NONE if the cell is empty.
+     */
+    public int getSpeciesAt(int cell)
+    {
+        return species[cell];
+    }
+}
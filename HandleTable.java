@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+/**
+ * A table of objects indexed by integer handles. It lets a field keep
+ * its cells in primitive storage while still giving back the objects
+ * placed there. Released handles are reused before new ones are taken.
+ * 
+ * Handle zero is never given out and always refers to null, so it
+ * can mark an empty position.
+ * 
+ * Handles can be acquired and released from several threads at once.
+ * Looking up a handle needs no lock.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class HandleTable
+{
+    // Class variables.
+    
+    // The handle that refers to no object.
+    public static final int EMPTY = 0;
+    
+    // Instance fields.
+    
+    // The stored objects, indexed by handle. Replaced when the table grows.
+    private volatile Object[] objects;
+    // A stack of the handles that are free to be reused.
+    private int[] freeHandles;
+    // The number of handles on the free stack.
+    private int freeCount;
+    // The lowest handle that has never been used.
+    private int nextHandle;
+
+    /**
+     * Create an empty handle table.
+     */
+    public HandleTable()
+    {
+        objects = new Object[16];
+        freeHandles = new int[16];
+        freeCount = 0;
+        nextHandle = EMPTY + 1;
+    }
+    
+    /**
+     * Return the object stored under a handle.
+     * 
+     * @param handle The handle of the object.
+     * 
+     * @return The object, or null for the EMPTY handle.
+     */
+    public Object get(int handle)
+    {
+        return objects[handle];
+    }
+    
+    /**
+     * Store an object in the table.
+     * 
+     * @param obj The object to be stored.
+     * 
+     * @return The handle under which the object is stored.
+     */
+    public synchronized int acquire(Object obj)
+    {
+        int handle;
+        if(freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        }
+        else {
+            handle = nextHandle++;
+            if(handle == objects.length) {
+                objects = Arrays.copyOf(objects, objects.length * 2);
+            }
+        }
+        objects[handle] = obj;
+        return handle;
+    }
+    
+    /**
+     * Remove an object from the table, so that its handle
+     * can be reused.
+     * 
+     * @param handle The handle to be released.
+     */
+    public synchronized void release(int handle)
+    {
+        objects[handle] = null;
+        if(freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeHandles.length * 2);
+        }
+        freeHandles[freeCount++] = handle;
+    }
+    
+    /**
+     * Remove every object from the table.
+     */
+    public synchronized void clear()
+    {
+        Arrays.fill(objects, null);
+        freeCount = 0;
+        nextHandle = EMPTY + 1;
+    }
+}
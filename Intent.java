@@ -0,0 +1,294 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What an actor means to do in one step of a two-phase simulation.
+ * While an actor plans, neither the field nor the actor is changed:
+ * moves, meals, births, infections, deaths and the changes to the
+ * actor's own state, such as its countdowns, are recorded here instead.
+ * The intent is then committed, and whatever is no longer possible by
+ * then (a cell that has been taken, a meal that has been eaten) is
+ * dropped. If the actor has died by then, the whole intent is dropped
+ * and the actor keeps the state it had before it planned.
+ *
+ * An actor finds the intent it is planning through the thread that
+ * plans it, so that an actor does not need a field for it.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class Intent
+{
+    // Class variables.
+
+    // The intent the current thread is planning, if any.
+    private static final ThreadLocal<Intent> planning = new ThreadLocal<>();
+
+    // Instance fields.
+
+    // The actor whose intent this is.
+    private Actor actor;
+    // The order of the intent in the commit phase, lowest first.
+    private long priority;
+    // The cell the actor means to move to, or Field.NO_CELL.
+    private int moveCell;
+    // The food source the actor means to eat, or null.
+    private Actor food;
+    // The cell of the food source.
+    private int foodCell;
+    // The food level the actor gains from the meal.
+    private int foodGain;
+    // The cells claimed for newborns.
+    private int[] birthCells;
+    // The number of cells claimed for newborns.
+    private int birthCount;
+    // Whether the actor spreads its infection to its neighbours.
+    private boolean spreadsInfection;
+    // Whether the actor dies.
+    private boolean dies;
+    // Whether the actor leaves a corpse when it dies.
+    private boolean leavesCorpse;
+    // Whether the actor changed whether it is infected.
+    private boolean infectionChanged;
+    // Whether the actor is infected, if it changed.
+    private boolean infected;
+    // The changes to the actor's own state, in the order they were made.
+    private List<Runnable> updates;
+
+    /**
+     * Create an empty intent for an actor.
+     *
+     * @param actor The actor whose intent this is.
+     * @param priority The order of the intent in the commit phase, lowest first.
+     */
+    public Intent(Actor actor, long priority)
+    {
+        this.actor = actor;
+        this.priority = priority;
+        moveCell = Field.NO_CELL;
+        food = null;
+        birthCells = new int[0];
+        birthCount = 0;
+        spreadsInfection = false;
+        dies = false;
+        leavesCorpse = false;
+        infectionChanged = false;
+        infected = false;
+        updates = null;
+    }
+
+    /**
+     * Make the current thread plan an intent: until it is unbound, its
+     * actor records what it does in the intent instead of doing it.
+     *
+     * @param intent The intent to be planned.
+     */
+    public static void bind(Intent intent)
+    {
+        planning.set(intent);
+    }
+
+    /**
+     * Make the current thread stop planning, so actors act directly again.
+     */
+    public static void unbind()
+    {
+        planning.remove();
+    }
+
+    /**
+     * Return the intent the current thread is planning for an actor.
+     *
+     * @param actor The actor.
+     *
+     * @return The intent, or null if the actor acts directly on the field.
+     */
+    public static Intent boundTo(Actor actor)
+    {
+        Intent intent = planning.get();
+        return intent != null && intent.actor == actor ? intent : null;
+    }
+
+    /**
+     * Return the actor whose intent this is.
+     *
+     * @return The actor.
+     */
+    public Actor getActor()
+    {
+        return actor;
+    }
+
+    /**
+     * Return the order of the intent in the commit phase.
+     *
+     * @return The priority, lowest first.
+     */
+    public long getPriority()
+    {
+        return priority;
+    }
+
+    /**
+     * Check whether the actor changed whether it is infected.
+     *
+     * @return True if it did, see isInfected for the outcome.
+     */
+    public boolean changesInfection()
+    {
+        return infectionChanged;
+    }
+
+    /**
+     * Return whether the actor is infected once the intent is committed,
+     * if it changed.
+     *
+     * @return True if the actor is infected.
+     */
+    public boolean isInfected()
+    {
+        return infected;
+    }
+
+    /**
+     * Record a move.
+     *
+     * @param cell The cell the actor means to move to.
+     */
+    public void setMove(int cell)
+    {
+        moveCell = cell;
+    }
+
+    /**
+     * Record a meal.
+     *
+     * @param food The food source.
+     * @param cell The cell of the food source.
+     * @param gain The food level the actor gains from the meal.
+     */
+    public void setMeal(Actor food, int cell, int gain)
+    {
+        this.food = food;
+        foodCell = cell;
+        foodGain = gain;
+    }
+
+    /**
+     * Claim a cell for a newborn.
+     *
+     * @param cell The cell of the newborn.
+     */
+    public void claimBirth(int cell)
+    {
+        if(birthCount == birthCells.length) {
+            birthCells = Arrays.copyOf(birthCells, Math.max(4, birthCount * 2));
+        }
+        birthCells[birthCount++] = cell;
+    }
+
+    /**
+     * Record that the actor catches or gets rid of an infection.
+     *
+     * @param infected Whether the actor is infected.
+     */
+    public void setInfected(boolean infected)
+    {
+        infectionChanged = true;
+        this.infected = infected;
+    }
+
+    /**
+     * Record a change to the actor's own state, made when the intent
+     * is committed.
+     *
+     * @param update The change.
+     */
+    public void addUpdate(Runnable update)
+    {
+        if(updates == null) {
+            updates = new ArrayList<>(2);
+        }
+        updates.add(update);
+    }
+
+    /**
+     * Record that the actor spreads its infection to its neighbours.
+     */
+    public void setSpreadsInfection()
+    {
+        spreadsInfection = true;
+    }
+
+    /**
+     * Record that the actor dies.
+     *
+     * @param corpse Whether the actor leaves a corpse.
+     */
+    public void setDies(boolean corpse)
+    {
+        dies = true;
+        leavesCorpse = leavesCorpse || corpse;
+    }
+
+    /**
+     * Carry out the intent on the field, as far as it is still possible.
+     * Nothing happens if the actor has died since it planned. Otherwise
+     * the changes to its own state are made first. Newborns
+     * are only made in claimed cells that are still free, a meal is only
+     * eaten if the food source is still alive and in place, and a move is
+     * only made if the target cell is still free; otherwise the actor
+     * stays where it is and loses the food it expected.
+     *
+     * @param newActors A list to receive new actors.
+     */
+    public void commit(List<Actor> newActors)
+    {
+        if(!actor.isAlive()) {
+            return;
+        }
+        if(updates != null) {
+            for(Runnable update : updates) {
+                update.run();
+            }
+        }
+        if(infectionChanged) {
+            actor.getStore().setFlag(actor.getSlot(), ActorStore.INFECTED, infected);
+        }
+        Field field = actor.getField();
+        for(int i = 0; i < birthCount; i++) {
+            int cell = birthCells[i];
+            if(field.getNextObjectAt(cell) == null) {
+                Actor newBorn = actor.createOffspring(field.locationOf(cell));
+                if(newBorn != null) {
+                    newActors.add(newBorn);
+                }
+            }
+        }
+        if(spreadsInfection) {
+            ((Animal) actor).spreadInfection();
+        }
+        if(food != null) {
+            if(food.isAlive() && field.getNextObjectAt(foodCell) == food) {
+                ((Animal) actor).feedOn(food);
+                ((Organism) actor).incrementFoodLevel(foodGain);
+            }
+            else {
+                if(moveCell == foodCell) {
+                    moveCell = Field.NO_CELL;
+                }
+            }
+        }
+        if(moveCell != Field.NO_CELL && field.getNextObjectAt(moveCell) == null) {
+            actor.setLocation(moveCell);
+        }
+        if(dies) {
+            int cell = actor.getCell();
+            actor.setDead();
+            if(leavesCorpse && field.getNextObjectAt(cell) == null) {
+                actor.leaveCorpse(newActors, field, field.locationOf(cell));
+            }
+        }
+    }
+}
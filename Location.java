@@ -51,15 +51,23 @@ public class Location
     }
     
     /**
-     * Use the top 16 bits for the row value and the bottom for
-     * the column. Except for very big grids, this should give a
-     * unique hash code for each (row, col) pair.
+     * Combine the row and column values. While both fit in 16 bits they
+     * are packed into one int and scrambled by a reversible mix, so no two
+     * locations of a grid up to 65,536 x 65,536 collide and neighbouring
+     * ones land far apart. Larger values are packed into a long and
+     * scrambled before it is folded to an int.
      * 
      * @return A hashcode for the location.
      */
     public int hashCode()
     {
-        return (row << 16) + col;
+        if(((row | col) >>> 16) == 0) {
+            int hash = (row << 16) | col;
+            hash = (hash ^ (hash >>> 16)) * 0x85EBCA6B;
+            hash = (hash ^ (hash >>> 13)) * 0xC2B2AE35;
+            return hash ^ (hash >>> 16);
+        }
+        return Long.hashCode(Randomizer.mix(((long) row << 32) | (col & 0xFFFFFFFFL)));
     }
     
     /**
@@ -0,0 +1,221 @@
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The deaths of organisms of old age, of hunger and of a temperature they
+ * cannot survive, decided for all organisms at once at the end of a step
+ * instead of by each organism in its own act.
+ *
+ * The pass walks through the arrays of the field's ActorStore. What only
+ * depends on the species, the clock, the rate of decay and whether the
+ * temperature is survivable, is worked out once per species and step from
+ * the traits kept by the store, so a temperature that kills a whole
+ * species is a single bit of a mask.
+ * Each chunk of the store is checked in separate passes over its arrays:
+ * one draws the chances of dying of age, one looks up the values of each
+ * slot's species, and one works out the deaths of age, hunger and
+ * temperature with arithmetic only. These are plain scalar loops that
+ * read the arrays in order and make no calls. Only the organisms that
+ * die are visited as objects, to be removed and leave a corpse.
+ *
+ * An organism that has just been born, rests at this time of day or is
+ * infected (and dies of it when it next acts) is left alone. The chance
+ * of dying of age is drawn from the step's seed mixed with the cell of
+ * the organism, so it does not depend on the order of the slots.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class MortalityPass
+{
+    // Class variables.
+
+    // The flags that must be set, of all these, for an organism to be checked.
+    private static final int CHECKED_FLAGS = ActorStore.ALIVE | ActorStore.DORMANT | ActorStore.INFECTED;
+    // The kind of a species that is an organism.
+    private static final int ORGANISM = 1;
+    // The kind of a species the temperature kills.
+    private static final int LETHAL = 1 << 1;
+
+    // Instance fields.
+
+    // The current step of the clock of each species.
+    private int[] clocks;
+    // The rate of decay of each species.
+    private double[] ratesOfDecay;
+    // The kind of each species, see ORGANISM and LETHAL.
+    private int[] kinds;
+    // The chance drawn for each slot of the chunk being checked.
+    private double[] chances;
+    // The clock of each slot of the chunk being checked.
+    private int[] slotClocks;
+    // The rate of decay of each slot of the chunk being checked.
+    private double[] slotRates;
+    // The kind of each slot of the chunk being checked.
+    private int[] slotKinds;
+    // Whether each slot of the chunk being checked dies, 1 or 0.
+    private int[] dies;
+
+    /**
+     * Create a mortality pass.
+     */
+    public MortalityPass()
+    {
+        clocks = new int[Species.MAX_ID + 1];
+        ratesOfDecay = new double[Species.MAX_ID + 1];
+        kinds = new int[Species.MAX_ID + 1];
+        chances = new double[ActorStore.CHUNK_SIZE];
+        slotClocks = new int[ActorStore.CHUNK_SIZE];
+        slotRates = new double[ActorStore.CHUNK_SIZE];
+        slotKinds = new int[ActorStore.CHUNK_SIZE];
+        dies = new int[ActorStore.CHUNK_SIZE];
+    }
+
+    /**
+     * Let the organisms of a field that are old, starved, or in a
+     * temperature they cannot survive die, and leave corpses.
+     *
+     * @param field The field of the organisms.
+     * @param temperature The temperature of the surrounding.
+     * @param newActors A list to receive the corpses.
+     */
+    public void run(Field field, double temperature, List<Actor> newActors)
+    {
+        ActorStore store = field.getActorStore();
+        int size = store.size();
+        long stepSeed = Randomizer.split().nextLong();
+
+        // The kinds of species: organisms, and those the temperature kills.
+        boolean anyOrganism = false;
+        for(int species = 0; species <= Species.MAX_ID; species++) {
+            SpeciesTraits traits = store.getTraits(species);
+            kinds[species] = 0;
+            if(traits != null) {
+                anyOrganism = true;
+                clocks[species] = traits.getClock(field);
+                ratesOfDecay[species] = traits.getRateOfDecay();
+                kinds[species] = ORGANISM;
+                if(temperature < traits.getMinTemp() || temperature > traits.getMaxTemp()) {
+                    kinds[species] |= LETHAL;
+                }
+            }
+        }
+        if(!anyOrganism) {
+            return;
+        }
+
+        for(int start = 0; start < size; start += ActorStore.CHUNK_SIZE) {
+            ActorStore.Chunk chunk = store.getChunk(start >>> ActorStore.CHUNK_BITS);
+            int count = Math.min(ActorStore.CHUNK_SIZE, size - start);
+            drawChances(chunk, count, stepSeed);
+            lookUpSpecies(chunk, count);
+            if(markDeaths(chunk, count)) {
+                bury(chunk, count, stepSeed, newActors);
+            }
+        }
+    }
+
+    /**
+     * Draw the chance of dying of age of every slot of a chunk, from the
+     * step's seed mixed with the cell of the slot.
+     *
+     * @param chunk The chunk to be checked.
+     * @param count The number of slots of the chunk in use.
+     * @param stepSeed The seed of the step's chances of dying of age.
+     */
+    private void drawChances(ActorStore.Chunk chunk, int count, long stepSeed)
+    {
+        int[] cells = chunk.cells;
+        for(int i = 0; i < count; i++) {
+            long value = stepSeed ^ cells[i];
+            // Randomizer.mix, written out.
+            value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+            value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+            value = value ^ (value >>> 31);
+            chances[i] = (value >>> 11) * 0x1.0p-53;
+        }
+    }
+
+    /**
+     * Look up the clock, rate of decay and kind of the species of every
+     * slot of a chunk.
+     *
+     * @param chunk The chunk to be checked.
+     * @param count The number of slots of the chunk in use.
+     */
+    private void lookUpSpecies(ActorStore.Chunk chunk, int count)
+    {
+        byte[] species = chunk.species;
+        for(int i = 0; i < count; i++) {
+            int s = species[i];
+            slotClocks[i] = clocks[s];
+            slotRates[i] = ratesOfDecay[s];
+            slotKinds[i] = kinds[s];
+        }
+    }
+
+    /**
+     * Decide which organisms of a chunk die. Past the age of decay an
+     * organism can only die of age, before it of hunger or temperature.
+     * Every condition is worked out as a 0 or 1 from the sign bit of a
+     * difference, and the conditions are combined with bit operations.
+     *
+     * @param chunk The chunk to be checked.
+     * @param count The number of slots of the chunk in use.
+     *
+     * @return True if any organism of the chunk dies.
+     */
+    private boolean markDeaths(ActorStore.Chunk chunk, int count)
+    {
+        byte[] flags = chunk.flags;
+        int[] birthSteps = chunk.birthSteps;
+        int[] starvationSteps = chunk.starvationSteps;
+        int[] decaySteps = chunk.decaySteps;
+        int any = 0;
+        for(int i = 0; i < count; i++) {
+            int now = slotClocks[i];
+            int kind = slotKinds[i];
+            // Alive, awake, not infected, an organism, and not just born.
+            int checked = ((((flags[i] & CHECKED_FLAGS) ^ ActorStore.ALIVE) - 1) >>> 31)
+                          & kind & ((birthSteps[i] - now) >>> 31);
+            // Past the age of decay: now > decay step.
+            int decaying = (decaySteps[i] - now) >>> 31;
+            // The chance drawn is at most the chance of dying of age.
+            double limit = (now - decaySteps[i]) * slotRates[i];
+            int aged = 1 - (int) (Double.doubleToRawLongBits(limit - chances[i]) >>> 63);
+            // Starved: now >= starvation step.
+            int starved = 1 - ((now - starvationSteps[i]) >>> 31);
+            int frozen = (kind >>> 1) & 1;
+            int die = checked & ((decaying & aged) | ((decaying ^ 1) & (starved | frozen)));
+            dies[i] = die;
+            any |= die;
+        }
+        return any != 0;
+    }
+
+    /**
+     * Let the organisms of a chunk that were marked die, each leaving
+     * a corpse by chance.
+     *
+     * @param chunk The chunk.
+     * @param count The number of slots of the chunk in use.
+     * @param stepSeed The seed of the step's chances of leaving a corpse.
+     * @param newActors A list to receive the corpses.
+     */
+    private void bury(ActorStore.Chunk chunk, int count, long stepSeed, List<Actor> newActors)
+    {
+        for(int i = 0; i < count; i++) {
+            if(dies[i] == 0) {
+                continue;
+            }
+            Organism organism = (Organism) chunk.actors[i];
+            Randomizer.bind(new SplittableRandom(Randomizer.mix(~stepSeed ^ chunk.cells[i])));
+            try {
+                organism.leaveCorpseAfterDeath(newActors);
+            }
+            finally {
+                Randomizer.unbind();
+            }
+        }
+    }
+}
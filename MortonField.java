@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * A field that stores its positions in Z-order (Morton order). The bits
+ * of the row and column are interleaved to give the storage index, so
+ * positions that are close on the grid are usually close in memory,
+ * and a neighbourhood scan touches fewer cache lines than it does when
+ * rows are laid out one after another.
+ * 
+ * The grid is cut into small square blocks of BLOCK_SIDE cells a side.
+ * Each block is in Z-order and the blocks follow each other row by row,
+ * so each dimension is only padded up to a whole number of blocks.
+ * 
+ * The field keeps no occupancy boards, which are laid out row by row;
+ * its neighbourhood queries scan the cells in Z-order storage.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class MortonField extends Field
+{
+    // Class variables.
+    
+    // The number of bits of a row or column used for the position within its block.
+    private static final int BLOCK_BITS = 3;
+    // The length of a block side.
+    public static final int BLOCK_SIDE = 1 << BLOCK_BITS;
+    // The mask for the position of a row or column within its block.
+    private static final int BLOCK_MASK = BLOCK_SIDE - 1;
+    
+    // Instance fields.
+    
+    // The part of the storage index given by each row.
+    private int[] rowCodes;
+    // The part of the storage index given by each column.
+    private int[] colCodes;
+    // The animal at each position, in storage order.
+    private Object[] objects;
+    // The species id of the animal at each position, in storage order.
+    private byte[] species;
+
+    /**
+     * Represent a field of the given dimensions.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public MortonField(int depth, int width)
+    {
+        super(depth, width, false);
+        long blocksAcross = ((long) width + BLOCK_MASK) >> BLOCK_BITS;
+        long blocksDown = ((long) depth + BLOCK_MASK) >> BLOCK_BITS;
+        long size = (blocksAcross * blocksDown) << (2 * BLOCK_BITS);
+        if(size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field too large for Z-order storage: " + depth + "x" + width);
+        }
+        int rowOfBlocks = (int) blocksAcross << (2 * BLOCK_BITS);
+        rowCodes = new int[depth];
+        for(int row = 0; row < depth; row++) {
+            rowCodes[row] = (row >> BLOCK_BITS) * rowOfBlocks + (spread(row & BLOCK_MASK) << 1);
+        }
+        colCodes = new int[width];
+        for(int col = 0; col < width; col++) {
+            colCodes[col] = ((col >> BLOCK_BITS) << (2 * BLOCK_BITS)) + spread(col & BLOCK_MASK);
+        }
+        objects = new Object[(int) size];
+        species = new byte[(int) size];
+    }
+    
+    /**
+     * Return the animal at the given location, if any.
+     * 
+     * @param row The desired row.
+     * @param col The desired column.
+     * 
+     * @return The animal at the given location, or null if there is none.
+     */
+    public Object getObjectAt(int row, int col)
+    {
+        return objects[rowCodes[row] + colCodes[col]];
+    }
+    
+    /**
+     * Return the animal in the given cell, if any.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int cell)
+    {
+        return objects[indexOf(cell)];
+    }
+    
+    /**
+     * Return the species id of the animal at the given location.
+     * 
+     * @param row The desired row.
+     * @param col The desired column.
+     * 
+     * @return The species id of the animal, or Species.NONE if the location is empty.
+     */
+    public int getSpeciesAt(int row, int col)
+    {
+        return species[rowCodes[row] + colCodes[col]];
+    }
+    
+    /**
+     * Return the species id of the animal in the given cell.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The species id of the animal, or Species.NONE if the cell is empty.
+     */
+    public int getSpeciesAt(int cell)
+    {
+        return species[indexOf(cell)];
+    }
+    
+    /**
+     * Store an animal in the given cell, or empty the cell.
+     * 
+     * @param cell The cell index of the location.
+     * @param animal The animal to be stored, or null to empty the cell.
+     * @param species The species id of the animal, or Species.NONE.
+     */
+    protected void store(int cell, Object animal, int species)
+    {
+        int index = indexOf(cell);
+        objects[index] = animal;
+        this.species[index] = (byte) species;
+    }
+    
+    /**
+     * Empty every cell of the storage.
+     */
+    protected void removeAll()
+    {
+        Arrays.fill(objects, null);
+        Arrays.fill(species, (byte) Species.NONE);
+    }
+    
+    /**
+     * Return the storage index of a cell.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The position of the cell in storage order.
+     */
+    private int indexOf(int cell)
+    {
+        int row = rowOf(cell);
+        return rowCodes[row] + colCodes[cell - row * getWidth()];
+    }
+    
+    /**
+     * Spread the bits of a value apart, so that bit i moves to bit 2i.
+     * 
+     * @param value The value to be spread, below 2 to the power 16.
+     * 
+     * @return The spread value.
+     */
+    private static int spread(int value)
+    {
+        value = (value | (value << 8)) & 0x00FF00FF;
+        value = (value | (value << 4)) & 0x0F0F0F0F;
+        value = (value | (value << 2)) & 0x33333333;
+        value = (value | (value << 1)) & 0x55555555;
+        return value;
+    }
+}
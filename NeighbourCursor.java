@@ -0,0 +1,297 @@
+import java.util.SplittableRandom;
+
+/**
+ * A reusable cursor over the locations surrounding a location in a field.
+ * The locations are visited in a random order, clipped to the bounds of
+ * the field, and the cursor itself never allocates while doing so.
+ * 
+ * For the eight adjacent locations the order is one of all the possible
+ * orderings, chosen uniformly at random, just like shuffling a list of them.
+ * For larger radii the locations are visited in a fixed, pre-shuffled order
+ * starting at a random position (a random rotation of that order).
+ * 
+ * A typical traversal looks like this:
+ * 
+ *     NeighbourCursor adjacent = field.neighbours(location);
+ *     while(adjacent.next()) {
+ *         Object obj = adjacent.getObject();
+ *         ...
+ *     }
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class NeighbourCursor
+{
+    // Class variables.
+    
+    // The row offsets of the eight adjacent locations.
+    static final int[] ADJACENT_ROW_OFFSETS = {-1, -1, -1, 0, 0, 1, 1, 1};
+    // The column offsets of the eight adjacent locations.
+    static final int[] ADJACENT_COL_OFFSETS = {-1, 0, 1, -1, 1, -1, 0, 1};
+    // The number of adjacent locations.
+    private static final int ADJACENT_COUNT = 8;
+    // The number of orderings of the adjacent locations (8!).
+    private static final int PERMUTATION_COUNT = 40320;
+    // Every ordering of the adjacent locations, eight entries per ordering.
+    private static final byte[] PERMUTATIONS = createPermutations();
+    // The pre-shuffled row offsets for each radius above one, created on demand.
+    private static int[][] rowOffsetsByRadius = new int[2][];
+    // The pre-shuffled column offsets for each radius above one, created on demand.
+    private static int[][] colOffsetsByRadius = new int[2][];
+    
+    // Instance fields.
+    
+    // The field the cursor traverses.
+    private Field field;
+    // The location at the centre of the traversal.
+    private int centreRow, centreCol;
+    // The offsets being traversed.
+    private int[] rowOffsets, colOffsets;
+    // The number of offsets being traversed.
+    private int size;
+    // The start of the chosen ordering within PERMUTATIONS, or -1 for a rotation.
+    private int permutation;
+    // The offset the rotation starts at.
+    private int rotation;
+    // The number of offsets visited so far.
+    private int visited;
+    // The current location.
+    private int row, col;
+
+    /**
+     * Create a cursor over the given field.
+     * 
+     * @param field The field to be traversed.
+     */
+    public NeighbourCursor(Field field)
+    {
+        this.field = field;
+        size = 0;
+        visited = 0;
+    }
+    
+    /**
+     * Start a new traversal of the locations around the given one.
+     * The location itself is not included.
+     * 
+     * @param row The row of the centre location.
+     * @param col The column of the centre location.
+     * @param radius The range reaching surrounding cells.
+     */
+    public void reset(int row, int col, int radius)
+    {
+        centreRow = row;
+        centreCol = col;
+        visited = 0;
+        SplittableRandom rand = Randomizer.getRandom();
+        if(radius == 1) {
+            rowOffsets = ADJACENT_ROW_OFFSETS;
+            colOffsets = ADJACENT_COL_OFFSETS;
+            size = ADJACENT_COUNT;
+            permutation = rand.nextInt(PERMUTATION_COUNT) * ADJACENT_COUNT;
+        }
+        else if(radius > 1) {
+            rowOffsets = getRowOffsets(radius);
+            colOffsets = getColOffsets(radius);
+            size = rowOffsets.length;
+            permutation = -1;
+            rotation = rand.nextInt(size);
+        }
+        else {
+            size = 0;
+        }
+    }
+    
+    /**
+     * Move to the next location that lies within the field.
+     * 
+     * @return True if there is such a location, false if the traversal is over.
+     */
+    public boolean next()
+    {
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        while(visited < size) {
+            int offset;
+            if(permutation >= 0) {
+                offset = PERMUTATIONS[permutation + visited];
+            }
+            else {
+                offset = rotation + visited;
+                if(offset >= size) {
+                    offset -= size;
+                }
+            }
+            visited++;
+            int nextRow = centreRow + rowOffsets[offset];
+            int nextCol = centreCol + colOffsets[offset];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                row = nextRow;
+                col = nextCol;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Return the row of the current location.
+     * 
+     * @return The row of the current location.
+     */
+    public int getRow()
+    {
+        return row;
+    }
+    
+    /**
+     * Return the column of the current location.
+     * 
+     * @return The column of the current location.
+     */
+    public int getCol()
+    {
+        return col;
+    }
+    
+    /**
+     * Return the cell index of the current location.
+     * 
+     * @return The cell index of the current location.
+     */
+    public int getCell()
+    {
+        return field.cellOf(row, col);
+    }
+    
+    /**
+     * Return the object at the current location.
+     * 
+     * @return The object at the current location, or null if it is empty.
+     */
+    public Object getObject()
+    {
+        return field.getObjectAt(row, col);
+    }
+    
+    /**
+     * Return the current location as a new Location object.
+     * 
+     * @return The current location.
+     */
+    public Location getLocation()
+    {
+        return new Location(row, col);
+    }
+    
+    /**
+     * Create every ordering of the adjacent locations, using Heap's algorithm.
+     * 
+     * @return The orderings, eight entries per ordering.
+     */
+    private static byte[] createPermutations()
+    {
+        byte[] permutations = new byte[PERMUTATION_COUNT * ADJACENT_COUNT];
+        byte[] order = new byte[ADJACENT_COUNT];
+        int[] counters = new int[ADJACENT_COUNT];
+        for(int i = 0; i < ADJACENT_COUNT; i++) {
+            order[i] = (byte) i;
+        }
+        int next = 0;
+        System.arraycopy(order, 0, permutations, next, ADJACENT_COUNT);
+        next += ADJACENT_COUNT;
+        int i = 0;
+        while(i < ADJACENT_COUNT) {
+            if(counters[i] < i) {
+                int j = i % 2 == 0 ? 0 : counters[i];
+                byte swap = order[j];
+                order[j] = order[i];
+                order[i] = swap;
+                System.arraycopy(order, 0, permutations, next, ADJACENT_COUNT);
+                next += ADJACENT_COUNT;
+                counters[i]++;
+                i = 0;
+            }
+            else {
+                counters[i] = 0;
+                i++;
+            }
+        }
+        return permutations;
+    }
+    
+    /**
+     * Return the pre-shuffled row offsets for the given radius.
+     * 
+     * @param radius The range reaching surrounding cells.
+     * 
+     * @return The row offsets.
+     */
+    private static synchronized int[] getRowOffsets(int radius)
+    {
+        createOffsets(radius);
+        return rowOffsetsByRadius[radius];
+    }
+    
+    /**
+     * Return the pre-shuffled column offsets for the given radius.
+     * 
+     * @param radius The range reaching surrounding cells.
+     * 
+     * @return The column offsets.
+     */
+    private static synchronized int[] getColOffsets(int radius)
+    {
+        createOffsets(radius);
+        return colOffsetsByRadius[radius];
+    }
+    
+    /**
+     * Create the offset tables for the given radius, if they do not exist yet.
+     * The offsets are shuffled once, with a fixed seed, so that a rotation of
+     * them does not visit the locations row by row.
+     * 
+     * @param radius The range reaching surrounding cells.
+     */
+    private static void createOffsets(int radius)
+    {
+        if(radius >= rowOffsetsByRadius.length) {
+            int length = Math.max(radius + 1, rowOffsetsByRadius.length * 2);
+            int[][] rows = new int[length][];
+            int[][] cols = new int[length][];
+            System.arraycopy(rowOffsetsByRadius, 0, rows, 0, rowOffsetsByRadius.length);
+            System.arraycopy(colOffsetsByRadius, 0, cols, 0, colOffsetsByRadius.length);
+            rowOffsetsByRadius = rows;
+            colOffsetsByRadius = cols;
+        }
+        if(rowOffsetsByRadius[radius] != null) {
+            return;
+        }
+        int side = 2 * radius + 1;
+        int[] rows = new int[side * side - 1];
+        int[] cols = new int[side * side - 1];
+        int next = 0;
+        for(int roffset = -radius; roffset <= radius; roffset++) {
+            for(int coffset = -radius; coffset <= radius; coffset++) {
+                if(roffset != 0 || coffset != 0) {
+                    rows[next] = roffset;
+                    cols[next] = coffset;
+                    next++;
+                }
+            }
+        }
+        SplittableRandom shuffle = new SplittableRandom(radius);
+        for(int i = rows.length - 1; i > 0; i--) {
+            int j = shuffle.nextInt(i + 1);
+            int swap = rows[i];
+            rows[i] = rows[j];
+            rows[j] = swap;
+            swap = cols[i];
+            cols[i] = cols[j];
+            cols[j] = swap;
+        }
+        rowOffsetsByRadius[radius] = rows;
+        colOffsetsByRadius[radius] = cols;
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * For every cell of a field, a mask of which of its eight adjacent cells
+ * are free. Bit k of a mask stands for the adjacent cell in direction k,
+ * using the same directions as NeighbourCursor. Adjacent positions that
+ * lie outside the field are never marked free.
+ * 
+ * The masks are updated in constant time whenever a cell becomes occupied
+ * or free, so finding a free adjacent cell is a lookup, a popcount and a
+ * bit select.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class NeighbourMasks
+{
+    // Class variables.
+    
+    // The row offset of each direction.
+    private static final int[] ROW_OFFSETS = NeighbourCursor.ADJACENT_ROW_OFFSETS;
+    // The column offset of each direction.
+    private static final int[] COL_OFFSETS = NeighbourCursor.ADJACENT_COL_OFFSETS;
+    // The number of directions.
+    private static final int DIRECTIONS = 8;
+    
+    // Instance fields.
+    
+    // The depth and width of the field.
+    private int depth, width;
+    // The mask of free adjacent cells of each cell.
+    private byte[] masks;
+
+    /**
+     * Create the masks for an empty field of the given dimensions.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public NeighbourMasks(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        masks = new byte[depth * width];
+        clear();
+    }
+    
+    /**
+     * Reset the masks to those of an empty field.
+     */
+    public void clear()
+    {
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                int mask = 0;
+                for(int k = 0; k < DIRECTIONS; k++) {
+                    if(inside(row + ROW_OFFSETS[k], col + COL_OFFSETS[k])) {
+                        mask |= 1 << k;
+                    }
+                }
+                masks[row * width + col] = (byte) mask;
+            }
+        }
+    }
+    
+    /**
+     * Record that a cell has become occupied.
+     * 
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    public void occupy(int row, int col)
+    {
+        for(int k = 0; k < DIRECTIONS; k++) {
+            int nextRow = row + ROW_OFFSETS[k];
+            int nextCol = col + COL_OFFSETS[k];
+            if(inside(nextRow, nextCol)) {
+                // Seen from the neighbour, this cell lies in the opposite direction.
+                masks[nextRow * width + nextCol] &= ~(1 << (DIRECTIONS - 1 - k));
+            }
+        }
+    }
+    
+    /**
+     * Record that a cell has become free.
+     * 
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    public void release(int row, int col)
+    {
+        for(int k = 0; k < DIRECTIONS; k++) {
+            int nextRow = row + ROW_OFFSETS[k];
+            int nextCol = col + COL_OFFSETS[k];
+            if(inside(nextRow, nextCol)) {
+                masks[nextRow * width + nextCol] |= 1 << (DIRECTIONS - 1 - k);
+            }
+        }
+    }
+    
+    /**
+     * Return the mask of free adjacent cells of a cell.
+     * 
+     * @param cell The cell index (row * width + col).
+     * 
+     * @return The mask, one bit per direction.
+     */
+    public int getMask(int cell)
+    {
+        return masks[cell] & 0xFF;
+    }
+    
+    /**
+     * Return the cell lying in the given direction of a cell.
+     * 
+     * @param cell The cell index (row * width + col).
+     * @param direction The direction, from 0 to 7.
+     * 
+     * @return The cell index of the adjacent cell.
+     */
+    public int adjacentCell(int cell, int direction)
+    {
+        return cell + ROW_OFFSETS[direction] * width + COL_OFFSETS[direction];
+    }
+    
+    /**
+     * Return the direction of the n-th set bit of a mask, counting from zero.
+     * 
+     * @param mask The mask.
+     * @param n Which set bit to find.
+     * 
+     * @return The direction of the bit.
+     */
+    public static int selectDirection(int mask, int n)
+    {
+        for(int i = 0; i < n; i++) {
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+    
+    /**
+     * Check whether a position lies within the field.
+     * 
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * 
+     * @return True if the position is inside the field.
+     */
+    private boolean inside(int row, int col)
+    {
+        return row >= 0 && row < depth && col >= 0 && col < width;
+    }
+}
@@ -0,0 +1,380 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Bitboards recording which species occupy which cells of a field.
+ * There is one board per species, with one bit per cell, plus a board
+ * marking every occupied cell and one marking the cells occupied by
+ * female animals. Each row of a board
+ * starts on a new 64-bit word, so the bits of a run of columns can be
+ * picked out of a row with a couple of shifts and masks.
+ * 
+ * Bits are set and cleared atomically, so cells that share a word can
+ * be updated from different threads at the same time.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class OccupancyBoards
+{
+    // Class variables.
+    
+    // Atomic access to the words of a board.
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    
+    // Instance fields.
+    
+    // The depth and width of the field.
+    private int depth, width;
+    // The number of 64-bit words used for each row.
+    private int wordsPerRow;
+    // The board of each species, indexed by species id, created on demand.
+    private long[][] speciesBoards;
+    // The board of the cells occupied by anything.
+    private long[] occupiedBoard;
+    // The board of the cells occupied by female animals.
+    private long[] femaleBoard;
+
+    /**
+     * Create empty boards for a field of the given dimensions.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public OccupancyBoards(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        wordsPerRow = (width + 63) >>> 6;
+        speciesBoards = new long[Species.MAX_ID + 1][];
+        occupiedBoard = newBoard();
+        femaleBoard = newBoard();
+    }
+    
+    /**
+     * Empty all the boards.
+     */
+    public void clear()
+    {
+        for(long[] board : speciesBoards) {
+            if(board != null) {
+                Arrays.fill(board, 0);
+            }
+        }
+        Arrays.fill(occupiedBoard, 0);
+        Arrays.fill(femaleBoard, 0);
+    }
+    
+    /**
+     * Record that a cell is occupied.
+     * 
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param species The species id of the occupant.
+     * @param female Whether the occupant is a female animal.
+     */
+    public void mark(int row, int col, int species, boolean female)
+    {
+        int word = row * wordsPerRow + (col >>> 6);
+        long bit = 1L << col;
+        WORDS.getAndBitwiseOr(getBoard(species), word, bit);
+        WORDS.getAndBitwiseOr(occupiedBoard, word, bit);
+        if(female) {
+            WORDS.getAndBitwiseOr(femaleBoard, word, bit);
+        }
+    }
+    
+    /**
+     * Record that a cell is no longer occupied.
+     * 
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param species The species id of the former occupant.
+     */
+    public void unmark(int row, int col, int species)
+    {
+        int word = row * wordsPerRow + (col >>> 6);
+        long bit = ~(1L << col);
+        WORDS.getAndBitwiseAnd(getBoard(species), word, bit);
+        WORDS.getAndBitwiseAnd(occupiedBoard, word, bit);
+        WORDS.getAndBitwiseAnd(femaleBoard, word, bit);
+    }
+    
+    /**
+     * Count the cells within the given radius of a cell that are occupied
+     * by one of the given species. The cell itself is not counted.
+     * 
+     * @param row The row of the centre cell.
+     * @param col The column of the centre cell.
+     * @param radius The range reaching surrounding cells, at most 31.
+     * @param speciesMask The species to look for, one bit per species id.
+     * 
+     * @return The number of matching cells.
+     */
+    public int count(int row, int col, int radius, long speciesMask)
+    {
+        int count = 0;
+        int lastRow = Math.min(row + radius, depth - 1);
+        for(int nextRow = Math.max(row - radius, 0); nextRow <= lastRow; nextRow++) {
+            count += Long.bitCount(rowBits(nextRow, row, col, radius, speciesMask));
+        }
+        return count;
+    }
+    
+    /**
+     * Pick one of the cells within the given radius of a cell that are occupied
+     * by one of the given species. Every matching cell is equally likely to be
+     * picked. The cell itself is never picked.
+     * 
+     * @param row The row of the centre cell.
+     * @param col The column of the centre cell.
+     * @param radius The range reaching surrounding cells, at most 31.
+     * @param speciesMask The species to look for, one bit per species id.
+     * @param choice A number below the count of matching cells, choosing which one to return.
+     * 
+     * @return The cell index (row * width + col) of the chosen cell.
+     */
+    public int select(int row, int col, int radius, long speciesMask, int choice)
+    {
+        int lastRow = Math.min(row + radius, depth - 1);
+        for(int nextRow = Math.max(row - radius, 0); nextRow <= lastRow; nextRow++) {
+            long bits = rowBits(nextRow, row, col, radius, speciesMask);
+            int count = Long.bitCount(bits);
+            if(choice < count) {
+                int offset = selectBit(bits, choice);
+                return nextRow * width + col - radius + offset;
+            }
+            choice -= count;
+        }
+        throw new IllegalArgumentException("Choice out of range: " + choice);
+    }
+    
+    /**
+     * Count the free cells within the given radius of a cell.
+     * The cell itself is not counted.
+     * 
+     * @param row The row of the centre cell.
+     * @param col The column of the centre cell.
+     * @param radius The range reaching surrounding cells, at most 31.
+     * 
+     * @return The number of free cells.
+     */
+    public int countFree(int row, int col, int radius)
+    {
+        int count = 0;
+        int lastRow = Math.min(row + radius, depth - 1);
+        for(int nextRow = Math.max(row - radius, 0); nextRow <= lastRow; nextRow++) {
+            count += Long.bitCount(freeRowBits(nextRow, row, col, radius));
+        }
+        return count;
+    }
+    
+    /**
+     * Pick one of the free cells within the given radius of a cell. Every
+     * free cell is equally likely to be picked. The cell itself is never picked.
+     * 
+     * @param row The row of the centre cell.
+     * @param col The column of the centre cell.
+     * @param radius The range reaching surrounding cells, at most 31.
+     * @param choice A number below the count of free cells, choosing which one to return.
+     * 
+     * @return The cell index (row * width + col) of the chosen cell.
+     */
+    public int selectFree(int row, int col, int radius, int choice)
+    {
+        int lastRow = Math.min(row + radius, depth - 1);
+        for(int nextRow = Math.max(row - radius, 0); nextRow <= lastRow; nextRow++) {
+            long bits = freeRowBits(nextRow, row, col, radius);
+            int count = Long.bitCount(bits);
+            if(choice < count) {
+                int offset = selectBit(bits, choice);
+                return nextRow * width + col - radius + offset;
+            }
+            choice -= count;
+        }
+        throw new IllegalArgumentException("Choice out of range: " + choice);
+    }
+    
+    /**
+     * Check whether any cell adjacent to a cell is occupied by an animal of
+     * the given species and gender.
+     * 
+     * @param row The row of the centre cell.
+     * @param col The column of the centre cell.
+     * @param species The species id to look for.
+     * @param female True to look for a female, false to look for a male.
+     * 
+     * @return True if there is such an animal.
+     */
+    public boolean hasAdjacent(int row, int col, int species, boolean female)
+    {
+        long[] board = speciesBoards[species];
+        if(board == null) {
+            return false;
+        }
+        int lastRow = Math.min(row + 1, depth - 1);
+        for(int nextRow = Math.max(row - 1, 0); nextRow <= lastRow; nextRow++) {
+            long bits = span(board, nextRow, col - 1, 3);
+            long females = span(femaleBoard, nextRow, col - 1, 3);
+            bits &= female ? females : ~females;
+            if(nextRow == row) {
+                // Leave out the centre cell.
+                bits &= ~2L;
+            }
+            if(bits != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Return the bits of one row of a square window around a cell, for the
+     * cells occupied by one of the given species. Bit i stands for column
+     * col - radius + i. The centre cell is left out.
+     * 
+     * @param nextRow The row to look at.
+     * @param row The row of the centre cell.
+     * @param col The column of the centre cell.
+     * @param radius The range reaching surrounding cells.
+     * @param speciesMask The species to look for, one bit per species id.
+     * 
+     * @return The bits of the row.
+     */
+    private long rowBits(int nextRow, int row, int col, int radius, long speciesMask)
+    {
+        long bits = 0;
+        for(long mask = speciesMask; mask != 0; mask &= mask - 1) {
+            long[] board = speciesBoards[Long.numberOfTrailingZeros(mask)];
+            if(board != null) {
+                bits |= span(board, nextRow, col - radius, 2 * radius + 1);
+            }
+        }
+        if(nextRow == row) {
+            bits &= ~(1L << radius);
+        }
+        return bits;
+    }
+    
+    /**
+     * Return the bits of one row of a square window around a cell, for the
+     * free cells. Bit i stands for column col - radius + i. The centre cell
+     * and the columns outside the field are left out.
+     * 
+     * @param nextRow The row to look at.
+     * @param row The row of the centre cell.
+     * @param col The column of the centre cell.
+     * @param radius The range reaching surrounding cells.
+     * 
+     * @return The bits of the row.
+     */
+    private long freeRowBits(int nextRow, int row, int col, int radius)
+    {
+        int fromCol = Math.max(col - radius, 0);
+        int toCol = Math.min(col + radius, width - 1);
+        // One bit for each column of the window that lies within the field.
+        long inside = (-1L >>> (63 - (toCol - fromCol))) << (fromCol - col + radius);
+        long bits = ~span(occupiedBoard, nextRow, col - radius, 2 * radius + 1) & inside;
+        if(nextRow == row) {
+            bits &= ~(1L << radius);
+        }
+        return bits;
+    }
+    
+    /**
+     * Return the bits of a run of columns in one row of a board.
+     * Bit i of the result stands for column fromCol + i. Columns outside
+     * the field read as zero.
+     * 
+     * @param board The board to read.
+     * @param row The row to read.
+     * @param fromCol The first column of the run, may be negative.
+     * @param count The number of columns in the run, at most 64.
+     * 
+     * @return The bits of the run.
+     */
+    private long span(long[] board, int row, int fromCol, int count)
+    {
+        int shift = 0;
+        if(fromCol < 0) {
+            shift = -fromCol;
+            count -= shift;
+            fromCol = 0;
+        }
+        if(count <= 0 || fromCol >= width) {
+            return 0;
+        }
+        int word = fromCol >>> 6;
+        int bit = fromCol & 63;
+        int base = row * wordsPerRow;
+        long bits = board[base + word] >>> bit;
+        if(bit + count > 64 && word + 1 < wordsPerRow) {
+            bits |= board[base + word + 1] << (64 - bit);
+        }
+        if(count < 64) {
+            bits &= (1L << count) - 1;
+        }
+        return bits << shift;
+    }
+    
+    /**
+     * Return the position of the n-th set bit of a word, counting from zero.
+     * 
+     * @param bits The word.
+     * @param n Which set bit to find.
+     * 
+     * @return The position of the bit.
+     */
+    private static int selectBit(long bits, int n)
+    {
+        for(int i = 0; i < n; i++) {
+            bits &= bits - 1;
+        }
+        return Long.numberOfTrailingZeros(bits);
+    }
+    
+    /**
+     * Return the board of the given species, creating it if needed.
+     * 
+     * @param species The species id.
+     * 
+     * @return The board of the species.
+     */
+    private long[] getBoard(int species)
+    {
+        long[] board = speciesBoards[species];
+        if(board == null) {
+            board = createBoard(species);
+        }
+        return board;
+    }
+    
+    /**
+     * Create the board of a species, unless another thread
+     * has just created it.
+     * 
+     * @param species The species id.
+     * 
+     * @return The board of the species.
+     */
+    private synchronized long[] createBoard(int species)
+    {
+        long[] board = speciesBoards[species];
+        if(board == null) {
+            board = newBoard();
+            speciesBoards[species] = board;
+        }
+        return board;
+    }
+    
+    /**
+     * Create an empty board.
+     * 
+     * @return The new board.
+     */
+    private long[] newBoard()
+    {
+        return new long[depth * wordsPerRow];
+    }
+}
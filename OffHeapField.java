@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A field that keeps its grid outside the Java heap. The handle and
+ * species id of every position live in direct buffers, which are either
+ * plain off-heap memory or mapped from a file. Only the table of placed
+ * objects stays on the heap, and it grows with the number of animals
+ * rather than with the size of the grid.
+ * 
+ * A buffer holds at most 2 GB, so the grid is split into segments of
+ * SEGMENT_CELLS consecutive positions, each with a buffer of its own.
+ * The file holds the segments one after another; each segment holds
+ * the handles of its positions followed by their species ids.
+ * 
+ * Handles refer to objects on the heap, so a mapped file records the
+ * layout of a run but cannot bring its animals back; the field starts
+ * out empty. Only the part of the file that existed before it was
+ * opened has to be wiped, as the rest is filled with zeros when the
+ * file grows.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class OffHeapField extends Field
+{
+    // Class variables.
+    
+    // The number of bytes stored for each position.
+    public static final int BYTES_PER_CELL = Integer.BYTES + Byte.BYTES;
+    // The number of bits of a cell index used for the position within its segment.
+    private static final int SEGMENT_BITS = 26;
+    // The largest number of positions in one segment.
+    public static final int SEGMENT_CELLS = 1 << SEGMENT_BITS;
+    // The mask for the position of a cell within its segment.
+    private static final int SEGMENT_MASK = SEGMENT_CELLS - 1;
+    // A block of zeros, copied over the grid to empty it.
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(64 * 1024);
+    
+    // Instance fields.
+    
+    // The buffer holding each segment of the grid.
+    private ByteBuffer[] memory;
+    // The handle of the animal at each position, segment by segment.
+    private IntBuffer[] handles;
+    // The species id of the animal at each position, segment by segment.
+    private ByteBuffer[] species;
+    // The placed animals, indexed by handle.
+    private HandleTable objects;
+
+    /**
+     * Represent a field of the given dimensions in off-heap memory.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public OffHeapField(int depth, int width)
+    {
+        super(depth, width, false);
+        initSegments();
+        for(int s = 0; s < memory.length; s++) {
+            // Direct buffers are allocated filled with zeros.
+            initSegment(s, ByteBuffer.allocateDirect(segmentCells(s) * BYTES_PER_CELL));
+        }
+    }
+    
+    /**
+     * Represent a field of the given dimensions in memory mapped from a file.
+     * The file is created if it does not exist, and grown to fit the grid.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param file The file backing the grid.
+     * 
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public OffHeapField(int depth, int width, Path file) throws IOException
+    {
+        super(depth, width, false);
+        initSegments();
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long written = channel.size();
+            long offset = 0;
+            for(int s = 0; s < memory.length; s++) {
+                int size = segmentCells(s) * BYTES_PER_CELL;
+                // The mapping stays valid after the channel is closed.
+                initSegment(s, channel.map(FileChannel.MapMode.READ_WRITE, offset, size));
+                // Only the bytes the file held before may be other than zero.
+                zero(memory[s], (int) Math.max(0, Math.min(size, written - offset)));
+                offset += size;
+            }
+        }
+    }
+    
+    /**
+     * Return the animal in the given cell, if any.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int cell)
+    {
+        return objects.get(handles[cell >>> SEGMENT_BITS].get(cell & SEGMENT_MASK));
+    }
+    
+    /**
+     * Return the species id of the animal in the given cell.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The species id of the animal, or Species.NONE if the cell is empty.
+     */
+    public int getSpeciesAt(int cell)
+    {
+        return species[cell >>> SEGMENT_BITS].get(cell & SEGMENT_MASK);
+    }
+    
+    /**
+     * Write the grid back to its file. Does nothing if the field
+     * is not backed by a file.
+     */
+    public void force()
+    {
+        for(ByteBuffer segment : memory) {
+            if(segment instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+    }
+    
+    /**
+     * Store an animal in the given cell, or empty the cell.
+     * 
+     * @param cell The cell index of the location.
+     * @param animal The animal to be stored, or null to empty the cell.
+     * @param species The species id of the animal, or Species.NONE.
+     */
+    protected void store(int cell, Object animal, int species)
+    {
+        IntBuffer segment = handles[cell >>> SEGMENT_BITS];
+        int i = cell & SEGMENT_MASK;
+        int handle = segment.get(i);
+        if(handle != HandleTable.EMPTY) {
+            objects.release(handle);
+        }
+        segment.put(i, animal == null ? HandleTable.EMPTY : objects.acquire(animal));
+        this.species[cell >>> SEGMENT_BITS].put(i, (byte) species);
+    }
+    
+    /**
+     * Empty every cell of the storage.
+     */
+    protected void removeAll()
+    {
+        for(ByteBuffer segment : memory) {
+            zero(segment, segment.capacity());
+        }
+        objects.clear();
+    }
+    
+    /**
+     * Create the arrays of segments and the table of objects.
+     */
+    private void initSegments()
+    {
+        int segments = (int) (((long) getCellCount() + SEGMENT_MASK) >>> SEGMENT_BITS);
+        memory = new ByteBuffer[segments];
+        handles = new IntBuffer[segments];
+        species = new ByteBuffer[segments];
+        objects = new HandleTable();
+    }
+    
+    /**
+     * Split the buffer of a segment into its handle and species regions.
+     * 
+     * @param s The index of the segment.
+     * @param buffer The buffer holding the segment.
+     */
+    private void initSegment(int s, ByteBuffer buffer)
+    {
+        int cells = segmentCells(s);
+        memory[s] = buffer.order(ByteOrder.nativeOrder());
+        handles[s] = buffer.slice(0, cells * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        species[s] = buffer.slice(cells * Integer.BYTES, cells);
+    }
+    
+    /**
+     * Return the number of positions in a segment. Every segment but
+     * the last is full.
+     * 
+     * @param s The index of the segment.
+     * 
+     * @return The number of positions.
+     */
+    private int segmentCells(int s)
+    {
+        return (int) Math.min(SEGMENT_CELLS, (long) getCellCount() - ((long) s << SEGMENT_BITS));
+    }
+    
+    /**
+     * Fill the start of a buffer with zeros, a block at a time.
+     * 
+     * @param buffer The buffer.
+     * @param length The number of bytes to fill.
+     */
+    private static void zero(ByteBuffer buffer, int length)
+    {
+        for(int i = 0; i < length; i += ZEROS.capacity()) {
+            buffer.put(i, ZEROS, 0, Math.min(ZEROS.capacity(), length - i));
+        }
+    }
+}
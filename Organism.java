@@ -1,79 +1,50 @@
-import java.util.HashSet;
 import java.util.List;
 
 /**
  * An abstract class representing shared characteristics of organisms.
+ * 
+ * The age, food level and death probability of an organism are not
+ * updated every step. They are worked out from the step of its clock in
+ * which it was born, when a decision needs them, and the steps in which
+ * it starts to die of age and starves are known in advance.
+ * 
+ * The traits that are the same for the whole species are not kept by
+ * each organism, but in one SpeciesTraits object shared by the species.
  *
  * @author David J. Barnes, Michael Kölling, Ivan Arabadzhiev and Adonis Daskalopulos
  * @version 2021.03.03
  */
 public abstract class Organism extends Actor
 {
-    // Characteristics shared by all organisms (class variables).
-    
-    // The probability of an organism leaving a corpse.
-    private static final double CORPSE_PROBABILITY = 0.1;
-    
     // Characteristics shared by all organisms (instance fields).
     
-    // The kingdom that the organism represents.
-    private boolean isAnimal;        
-    // The organism's age.
-    private int age;
-    // The age at which a shark starts to have a chance of dying of age.
-    private int ageOfDecay;
-    // The ability to undertake an action.
-    private int vitality;
-    // A set holding the food sources for a specific species.
-    private HashSet<String> diet;
-    // The organism's food level.
-    private int foodLevel;
-    // The organism's maximum food level.
-    private int maxFoodLevel;
-    // The minimum temperature required for the organism to survive
-    private double minTemp;
-    // The maximum temperature under which the organism can survive
-    private double maxTemp;
-    // Whether the organism is infected or not.
-    private boolean isInfected;
-    // The probability of an organism getting infected by a disease
-    private double infectionProbability;
-    // The probability of an organism passing the disease to another organism.
-    private double spreadingProbability;
-    // The probability of an organism curing itself from a disease.
-    private double cureProbability;
-    // The probability of a organism dying.
-    private double deathProbability;
-    // The rate of change of death probability.
-    private double rateOfDecay;
-    // The probability of leaving a corpse after dying
-    private double corpseProbability;
+    // The traits shared by all members of the organism's species.
+    private SpeciesTraits traits;
+    // The step of the organism's clock at which it gets infected.
+    private int infectionStep;
+    // The step of the organism's clock in which it was born, its food
+    // level (not counting the food an animal has used up since then),
+    // the steps at which it starts to die of age and has starved, and
+    // whether it is infected are kept in its slot of the ActorStore.
 
     /**
-     * Create a new organism at location in field with specific traits.
+     * Create a new organism at location in field with the traits of its species.
      * 
      * @param field The field currently occupied.
      * @param location The location within the field.
+     * @param traits The traits shared by all members of the species.
      */
-    public Organism(Field field, Location location)
+    public Organism(Field field, Location location, SpeciesTraits traits)
     {
         super(field, location);
-        isAnimal = true;
-        age = 0;
-        ageOfDecay = 0;
-        vitality = 0;
-        diet = new HashSet<>();
-        foodLevel = 1;
-        maxFoodLevel = 1;
-        minTemp = -99;
-        maxTemp = 99;
-        isInfected = false;
-        infectionProbability = 0.0;
-        spreadingProbability = 0.0;
-        cureProbability = 0.0;
-        corpseProbability = 0.0;
-        deathProbability = 0.0;
-        rateOfDecay = 0.0;
+        this.traits = traits;
+        getStore().setTraits(getSpecies(), traits);
+        int birthStep = getClock();
+        getStore().setBirthStep(getSlot(), birthStep);
+        getStore().setDecayStep(getSlot(), birthStep + traits.getAgeOfDecay());
+        getStore().setFoodLevel(getSlot(), 1);
+        updateStarvationStep();
+        infectionStep = drawStep(birthStep, traits.getInfectionProbability());
     }
 
     // Generic methods.
@@ -86,11 +57,14 @@ public abstract class Organism extends Actor
      */
     protected boolean checkInfected()
     {
-        if(isInfected) {
+        if(isInfected()) {
             cureOrDie();
             return true;
         }
-        else if(testProbability(infectionProbability)){
+        int clock = getClock();
+        if(clock >= infectionStep) {
+            int next = drawStep(clock, traits.getInfectionProbability());
+            update(() -> infectionStep = next);
             infect();
             return true;
         }
@@ -102,34 +76,26 @@ public abstract class Organism extends Actor
      */
     protected void cureOrDie()
     {
-        if(testProbability(cureProbability) ) {
+        if(testProbability(traits.getCureProbability()) ) {
+            // The steps spent infected do not count towards the next infection.
+            int next = drawStep(getClock(), traits.getInfectionProbability());
+            update(() -> infectionStep = next);
             changeInfected();
         }
     }
     
     /**
-     * Run through all scenarios that can kill an organism.
+     * Let an infected organism die, at the end of its part of the step.
+     * Dying of age, of hunger and of the temperature is decided for all
+     * organisms at once by the MortalityPass at the end of the step.
      * 
      * @param newOrganisms A list to receive new organisms.
-     * @param temp The surrounding temperature.
      */
-    protected void decideDeath(List<Actor> newOrganisms, double temp)
+    protected void decideDeath(List<Actor> newOrganisms)
     {
         if(isInfected()) {
             leaveCorpseAfterDeath(newOrganisms);
         }
-        else if(getAge() > ageOfDecay) {
-            computeDeathProbability(rateOfDecay);
-            if(getRandom().nextDouble() <= getDeathProbability()) {
-                leaveCorpseAfterDeath(newOrganisms);
-            }
-        }
-        else if(foodLevel <= 0) {
-            leaveCorpseAfterDeath(newOrganisms);
-        }
-        else if(temp<minTemp || temp>maxTemp) {
-            leaveCorpseAfterDeath(newOrganisms);
-        }
     }
     
     /**
@@ -138,26 +104,20 @@ public abstract class Organism extends Actor
      * @param newOrganism A list to receive new organisms.
      */
     protected void leaveCorpseAfterDeath(List<Actor> newOrganisms){
-        Location location = getLocation();
+        Intent intent = getIntent();
+        if(intent != null) {
+            // Planning: the organism dies when the intent is committed.
+            intent.setDies(testProbability(traits.getCorpseProbability()));
+            return;
+        }
+        int cell = getCell();
         Field field = getField();
         setDead();
-        if(testProbability(corpseProbability)){
-            leaveCorpse(newOrganisms, field, location);
+        if(testProbability(traits.getCorpseProbability())){
+            leaveCorpse(newOrganisms, field, field.locationOf(cell));
         } 
     }
     
-    // Class variables accessor methods.
-    
-    /**
-     * Return the corpse probability of an organism.
-     * 
-     * @return The copse probability of an organsim.
-     */
-    protected double getCorpseProbability()
-    {
-        return CORPSE_PROBABILITY;
-    }
-    
     // Instance fields accessor methods.
     
     /**
@@ -167,17 +127,40 @@ public abstract class Organism extends Actor
      */
     protected boolean isAnimal()
     {
-        return isAnimal;
+        return traits.isAnimal();
+    }
+
+    /**
+     * Return the traits shared by all members of the organism's species.
+     * 
+     * @return The traits of the species.
+     */
+    protected SpeciesTraits getTraits()
+    {
+        return traits;
     }
 
     /**
-     * Return the age of the organism.
+     * Return the current step of the clock the organism lives by: the
+     * step of the simulation, or the number of day steps for a species
+     * that only lives through the day.
+     * 
+     * @return The current step of the organism's clock.
+     */
+    protected int getClock()
+    {
+        return traits.getClock(getField());
+    }
+
+    /**
+     * Return the age of the organism: the number of steps it has lived
+     * through before the current one.
      * 
      * @return The age of the organism.
      */
     protected int getAge()
     {
-        return age;
+        return Math.max(0, getClock() - 1 - getStore().getBirthStep(getSlot()));
     }
 
     /**
@@ -187,48 +170,52 @@ public abstract class Organism extends Actor
      */
     protected int getAgeOfDecay()
     {
-        return ageOfDecay;
+        return traits.getAgeOfDecay();
     }
 
     /**
-     * Return the vitality of the organism.
+     * Return the food value of the organism, which is that of its species.
      * 
-     * @return The vitality of the organism.
+     * @return The food value of the organism.
      */
-    protected int getVitality()
+    protected int getFoodValue()
     {
-        return vitality;
+        return traits.getFoodValue();
     }
 
     /**
-     * Return the set holding the organism's diet.
+     * Return a boolean value depening whether or not this food source
+     * is in the diet.
+     * 
+     * @param species The species id of the food source.
      * 
-     * @return The set holding the organism's diet.
+     * @return True if the food source is in the diet, False otherwise.
      */
-    protected HashSet<String> getDiet()
+    protected boolean dietContains(int species)
     {
-        return diet;
+        return (traits.getDietMask() & Species.maskOf(species)) != 0;
     }
 
     /**
-     * Return a boolean value depening whether or not this food source
-     * is in the diet set.
+     * Return the organism's diet as a mask of species ids.
      * 
-     * @return True if the food source is in the set, False otherwise.
+     * @return The diet mask, see Species.maskOf.
      */
-    protected boolean dietContains(String foodName)
+    protected long getDietMask()
     {
-        return diet.contains(foodName);
+        return traits.getDietMask();
     }
 
     /**
-     * Return the food level of an organism.
+     * Return the food level of an organism in the current step. An animal
+     * uses up one unit of food in each step it has lived through.
      * 
      * @return The food level of the organism.
      */
     protected int getFoodLevel()
     {
-        return foodLevel;
+        int foodLevel = getStore().getFoodLevel(getSlot());
+        return traits.isAnimal() ? foodLevel - getAge() : foodLevel;
     }
 
     /**
@@ -238,7 +225,7 @@ public abstract class Organism extends Actor
      */
     protected int getMaxFoodLevel()
     {
-        return maxFoodLevel;
+        return traits.getMaxFoodLevel();
     }
 
     /**
@@ -248,7 +235,7 @@ public abstract class Organism extends Actor
      */
     protected double getMinTemp()
     {
-        return minTemp;
+        return traits.getMinTemp();
     }
 
     /**
@@ -258,7 +245,7 @@ public abstract class Organism extends Actor
      */
     protected double getMaxTemp()
     {
-        return maxTemp;
+        return traits.getMaxTemp();
     }
 
     /**
@@ -268,7 +255,12 @@ public abstract class Organism extends Actor
      */
     protected boolean isInfected()
     {
-        return isInfected;
+        Intent intent = getIntent();
+        if(intent != null && intent.changesInfection()) {
+            // Planning: the change is made when the intent is committed.
+            return intent.isInfected();
+        }
+        return getStore().hasFlag(getSlot(), ActorStore.INFECTED);
     }
 
     /**
@@ -278,7 +270,7 @@ public abstract class Organism extends Actor
      */
     protected double getInfectionProbability()
     {
-        return infectionProbability;
+        return traits.getInfectionProbability();
     }
 
     /**
@@ -288,7 +280,7 @@ public abstract class Organism extends Actor
      */
     protected double getSpreadingProbability()
     {
-        return spreadingProbability;
+        return traits.getSpreadingProbability();
     }
 
     /**
@@ -298,17 +290,17 @@ public abstract class Organism extends Actor
      */
     protected double getCureProbability()
     {
-        return cureProbability;
+        return traits.getCureProbability();
     }
 
     /**
-     * Return the death probability of the organism.
+     * Return the corpse probability of the organism.
      * 
-     * @return The death probablity of the organism.
+     * @return The corpse probability of the organism.
      */
-    protected double getDeathProbability()
+    protected double getCorpseProbability()
     {
-        return deathProbability;
+        return traits.getCorpseProbability();
     }
 
     /**
@@ -318,65 +310,11 @@ public abstract class Organism extends Actor
      */
     protected double getRateOfDecay()
     {
-        return rateOfDecay;
+        return traits.getRateOfDecay();
     }
 
     // Instance field mutator methods.
 
-    /**
-     * Change the organism's kingdom.
-     */
-    protected void changeKingdom()
-    {
-        isAnimal = !isAnimal;
-    }
-    
-    /**
-     * Set the value to the food value field.
-     * 
-     * @param foodValue The organism's worth as a food source.
-     */
-    protected void setAgeOfDecay(int ageOfDecay)
-    {
-        this.ageOfDecay = ageOfDecay;
-    }
-    
-    /**
-     * Increments the age of an organism.
-     */
-    protected void incrementAge()
-    {
-        age++;
-    }
-
-    /**
-     * Set the value of the vitality field.
-     * 
-     * @param vitality The vitality of the organism.
-     */
-    protected void setVitality(int vitality)
-    {
-        this.vitality = vitality;
-    }
-    
-    /**
-     * Decrement the vitality of an organism. 
-     */
-    protected void decrementVitality()
-    {
-        vitality--;
-    }
-
-    /**
-     * Set the value of the max food level field.
-     *  
-     * @param maxFoodLevel The organism's food level.
-     */
-    protected void setMaxFoodLevel(int maxFoodLevel)
-    {
-        this.maxFoodLevel = maxFoodLevel;
-    }
-    
     /**
      * Upon feeding on a food source the organism's food level is increased,
      * if the food level exceeds the maximum food level it is set to the 
@@ -386,74 +324,46 @@ public abstract class Organism extends Actor
      */
     protected void incrementFoodLevel(int foodValue)
     {
-        int newFoodLevel = foodLevel + foodValue;
-        if(newFoodLevel > maxFoodLevel){
-            foodLevel = maxFoodLevel;
+        int foodLevel = getStore().getFoodLevel(getSlot());
+        int usedUp = foodLevel - getFoodLevel();
+        int newFoodLevel = foodLevel - usedUp + foodValue;
+        if(newFoodLevel > traits.getMaxFoodLevel()){
+            foodLevel = traits.getMaxFoodLevel() + usedUp;
         }
         else{
-            foodLevel = newFoodLevel;
+            foodLevel = newFoodLevel + usedUp;
         }
+        getStore().setFoodLevel(getSlot(), foodLevel);
+        updateStarvationStep();
     }
 
     /**
-     * Upon "acting" the food level of an ogranism decreases, this may result in
-     * the organism's death.
-     */
-    protected void decrementFoodLevel()
-    {
-        foodLevel--;
-    }
-    
-    /**
-     * Add a food source to the set of diet of an ogranism.
-     * 
-     * @param food The food that an ogranism can consume.
-     */
-    protected void setDiet(List<String> diet)
-    {
-        this.diet = new HashSet<>(diet);
-    }
-    
-    /**
-     * Add a food source to the set of diet of an ogranism.
+     * Return how much the food level would rise from eating a food
+     * source, which is less than its food value if the maximum food
+     * level would be exceeded. The food level is not changed.
      * 
-     * @param food The food that an ogranism can consume.
-     */
-    protected void addDiet(String... food)
-    {
-        for(String foodName : food){
-            diet.add(foodName);
-        }
-    }
-
-    /**
-     * Remove a food source from the set of diet of an ogranism.
+     * @param foodValue The food source's worth as a food source.
      * 
-     * @param foodName The food that is to be removed.
-     */
-    protected void removeFromDiet(String foodName)
-    {
-        diet.remove(foodName);
-    }
-
-    /**
-     * Set the value of the minimum temperature field.
-     *  
-     * @param minTemp The minimum temperature of an organism surviving.
+     * @return The rise in food level.
      */
-    protected void setMinTemp(double minTemp)
+    protected int getFoodGain(int foodValue)
     {
-        this.minTemp = minTemp;
+        int foodLevel = getFoodLevel();
+        return Math.min(foodLevel + foodValue, traits.getMaxFoodLevel()) - foodLevel;
     }
 
     /**
-     * Set the value of the maximum temperature field.
-     * 
-     * @param maxTemp The maximum temperature of an organism surviving.
+     * Work out the step at whose end the organism has used up its food.
+     * An animal uses up one unit of food in each step it lives through;
+     * a plant never starves.
      */
-    protected void setMaxTemp(double maxTemp)
+    private void updateStarvationStep()
     {
-        this.maxTemp = maxTemp;
+        int slot = getSlot();
+        ActorStore store = getStore();
+        store.setStarvationStep(slot, traits.isAnimal()
+                                      ? store.getBirthStep(slot) + store.getFoodLevel(slot)
+                                      : Integer.MAX_VALUE);
     }
     
     /**
@@ -461,7 +371,7 @@ public abstract class Organism extends Actor
      */
     protected void changeInfected()
     {
-        isInfected = !isInfected;
+        setInfected(!isInfected());
     }
 
     /**
@@ -470,68 +380,24 @@ public abstract class Organism extends Actor
      */
     protected void infect()
     {
-        if(!isInfected && testProbability(spreadingProbability)){
-            isInfected = true;
+        if(!isInfected() && testProbability(traits.getSpreadingProbability())){
+            setInfected(true);
         }
-    } 
-    
-    /**
-     * Set the value of the infection probability field.
-     * 
-     * @param infectionProbability The probability of an organism catching a disease.
-     */
-    protected void setInfectionProbability(double infectionProbability)
-    {
-        this.infectionProbability = infectionProbability;
-    }
-
-    /**
-     * Set the value of the spreading probability field.
-     * 
-     * @param spreadingProbability The probability of an organism passing the disease to other organisms.
-     */
-    protected void setSpreadingProbability(double spreadingProbability)
-    {
-        this.spreadingProbability = spreadingProbability;
-    }
-
-    /**
-     * Set the value of the cure probability field.
-     * 
-     * @param cureProbability The probability of an organism curing itself from a disease.
-     */
-    protected void setCureProbability(double cureProbability)
-    {
-        this.cureProbability = cureProbability;
     }
     
     /**
-     * Set the value of the cure probability field.
+     * Set whether the organism carries a disease.
      * 
-     * @param cureProbability The probability of an organism curing itself from a disease.
+     * @param infected True if it is infected.
      */
-    protected void setCorpseProbability(double corpseProbability)
+    private void setInfected(boolean infected)
     {
-        this.corpseProbability = corpseProbability;
-    }
-    
-    /**
-     * Compute the death probability.
-     *  
-     * @param rateOfDecay The rate of change of death probability.
-     */
-    protected void computeDeathProbability(double rateOfDecay)
-    {
-        deathProbability = deathProbability + rateOfDecay;
-    } 
-    
-    /**
-     * Set the value of the rate of decay field.
-     * 
-     * @param rateOfDecay The rate of change of death probability.
-     */
-    protected void setRateOfDecay(double rateOfDecay)
-    {
-        this.rateOfDecay = rateOfDecay;
+        Intent intent = getIntent();
+        if(intent != null) {
+            // Planning: the change is made when the intent is committed.
+            intent.setInfected(infected);
+            return;
+        }
+        getStore().setFlag(getSlot(), ActorStore.INFECTED, infected);
     }
 }
\ No newline at end of file
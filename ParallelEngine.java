@@ -0,0 +1,436 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A step engine that runs the actors on several threads. The field is
+ * cut into tiles by bands of rows and bands of columns, coloured like a
+ * checkerboard with four colours, so that two tiles of the same colour
+ * never touch. The tiles of one colour are run at the same time on a
+ * work-stealing ForkJoinPool, and the colours are run one after another.
+ *
+ * The bands are either all tileSize wide, or, if a resplit interval is
+ * given, cut again every so many steps so that each band holds about the
+ * same number of living actors: dense parts of the field get narrow
+ * tiles and empty water gets wide ones. The tiles of a colour are then
+ * shared between the threads by their number of actors, not by count.
+ *
+ * An actor only reads and changes the field within REACH cells of its
+ * own cell, so as long as a tile is wide enough, the actors of two
+ * tiles of the same colour can never see or change the same cells.
+ *
+ * Each step splits a random stream off the shared one, and splits a
+ * stream for every tile off that, in tile order; each actor then draws
+ * from its own stream split off its tile's. Newborn actors are collected
+ * per tile and added in tile order. So the results only depend on the seed, the
+ * tile size and the resplit interval, not on the number of threads or
+ * how they are scheduled.
+ *
+ * The engine keeps the time each worker thread spends running tiles, so
+ * that the balance between the threads can be seen.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class ParallelEngine implements StepEngine
+{
+    // Class variables.
+
+    // The furthest from its own cell that an actor reads or changes the
+    // field. Seagrass reproduces up to 5 cells away.
+    public static final int REACH = 5;
+    // The smallest tile size. Placing an actor updates the free-neighbour
+    // masks one cell further than the actor reaches, and the tile between
+    // two tiles of the same colour must keep both apart.
+    public static final int MIN_TILE_SIZE = 2 * (REACH + 1);
+    // The number of colours of the checkerboard.
+    private static final int COLOURS = 4;
+
+    // Instance fields.
+
+    // The length of a tile side, or the average one if the bands are resplit.
+    private int tileSize;
+    // The number of steps between two cuts of the bands, or 0 to keep
+    // bands of equal width.
+    private int resplitInterval;
+    // The threads running the tiles.
+    private ForkJoinPool pool;
+    // The band of each row of the field.
+    private int[] rowBands;
+    // The band of each column of the field.
+    private int[] colBands;
+    // The number of bands of rows.
+    private int bandsDown;
+    // The number of bands of columns.
+    private int bandsAcross;
+    // The number of steps run since the bands were cut.
+    private int stepsSinceSplit;
+    // The nanoseconds each worker thread has spent running tiles.
+    private Map<Thread, long[]> busyTimes;
+    // The nanoseconds spent in the parallel part of the steps.
+    private long parallelTime;
+    // The actors starting each step in each tile.
+    private List<List<Actor>> tileActors;
+    // The actors born during a step in each tile.
+    private List<List<Actor>> tileBirths;
+
+    /**
+     * Create an engine using all available processors.
+     *
+     * @param tileSize The length of a tile side, at least MIN_TILE_SIZE.
+     */
+    public ParallelEngine(int tileSize)
+    {
+        this(tileSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an engine with tiles of equal size using the given number
+     * of threads.
+     *
+     * @param tileSize The length of a tile side, at least MIN_TILE_SIZE.
+     * @param threads The number of threads.
+     */
+    public ParallelEngine(int tileSize, int threads)
+    {
+        this(tileSize, threads, 0);
+    }
+
+    /**
+     * Create an engine using the given number of threads, whose tiles
+     * are sized by the number of actors in them.
+     *
+     * @param tileSize The average length of a tile side, at least MIN_TILE_SIZE.
+     * @param threads The number of threads.
+     * @param resplitInterval The number of steps between two cuts of the
+     *                        tiles, or 0 for tiles of equal size.
+     */
+    public ParallelEngine(int tileSize, int threads, int resplitInterval)
+    {
+        if(tileSize < MIN_TILE_SIZE) {
+            throw new IllegalArgumentException("Tiles must be at least " + MIN_TILE_SIZE + " wide: " + tileSize);
+        }
+        if(resplitInterval < 0) {
+            throw new IllegalArgumentException("The resplit interval cannot be negative: " + resplitInterval);
+        }
+        this.tileSize = tileSize;
+        this.resplitInterval = resplitInterval;
+        pool = new ForkJoinPool(threads);
+        tileActors = new ArrayList<>();
+        tileBirths = new ArrayList<>();
+        busyTimes = new ConcurrentHashMap<>();
+        parallelTime = 0;
+    }
+
+    /**
+     * Let every living actor act once, one colour of tiles at a time.
+     *
+     * @param actors The actors of the simulation. They are put in tile
+     *               order, and the newborn ones are added to the end,
+     *               also in tile order.
+     * @param field The field the actors live in.
+     * @param isDay The time of day.
+     * @param temperature The temperature of the surrounding.
+     *
+     * @return The position of the first newborn actor in the list.
+     */
+    public int step(ActorList actors, Field field, boolean isDay, double temperature)
+    {
+        if(rowBands == null || rowBands.length != field.getDepth() || colBands.length != field.getWidth()
+           || (resplitInterval > 0 && stepsSinceSplit >= resplitInterval)) {
+            split(actors, field);
+        }
+        stepsSinceSplit++;
+        int tileCount = bandsDown * bandsAcross;
+        while(tileActors.size() < tileCount) {
+            tileActors.add(new ArrayList<>());
+            tileBirths.add(new ArrayList<>());
+        }
+
+        // Sort the living actors into the tiles they start in.
+        for(Actor actor : actors) {
+            if(actor != null && actor.isAlive()) {
+                int cell = actor.getCell();
+                int tile = rowBands[field.rowOf(cell)] * bandsAcross + colBands[field.colOf(cell)];
+                tileActors.get(tile).add(actor);
+            }
+        }
+
+        // Split the random streams of the tiles, then run the tiles of
+        // each colour together.
+        SplittableRandom stepRandom = Randomizer.split();
+        SplittableRandom[] tileRandoms = new SplittableRandom[tileCount];
+        for(int tile = 0; tile < tileCount; tile++) {
+            tileRandoms[tile] = stepRandom.split();
+        }
+        int[] tiles = new int[tileCount];
+        long[] work = new long[tileCount + 1];
+        for(int colour = 0; colour < COLOURS; colour++) {
+            int count = 0;
+            for(int tileRow = colour >> 1; tileRow < bandsDown; tileRow += 2) {
+                for(int tileCol = colour & 1; tileCol < bandsAcross; tileCol += 2) {
+                    int tile = tileRow * bandsAcross + tileCol;
+                    int size = tileActors.get(tile).size();
+                    if(size > 0) {
+                        tiles[count] = tile;
+                        work[count + 1] = work[count] + size;
+                        count++;
+                    }
+                }
+            }
+            long start = System.nanoTime();
+            pool.invoke(new TileTask(tiles, work, 0, count, tileRandoms, isDay, temperature));
+            parallelTime += System.nanoTime() - start;
+        }
+
+        // Keep the survivors, then add the newborn, both in tile order.
+        actors.clear();
+        for(int tile = 0; tile < tileCount; tile++) {
+            for(Actor actor : tileActors.get(tile)) {
+                if(actor.isAlive()) {
+                    actors.add(actor);
+                }
+            }
+            tileActors.get(tile).clear();
+        }
+        int born = actors.size();
+        for(int tile = 0; tile < tileCount; tile++) {
+            for(Actor actor : tileBirths.get(tile)) {
+                actors.add(actor);
+            }
+            tileBirths.get(tile).clear();
+        }
+        return born;
+    }
+
+    /**
+     * Shut down the worker threads. Steps already run are finished.
+     */
+    public void close()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Return the time each worker thread has spent running tiles.
+     * A worker was idle for the rest of getParallelTime().
+     *
+     * @return The busy nanoseconds of each worker, by thread name.
+     */
+    public Map<String, Long> getBusyTimes()
+    {
+        Map<String, Long> times = new TreeMap<>();
+        for(Map.Entry<Thread, long[]> entry : busyTimes.entrySet()) {
+            times.put(entry.getKey().getName(), entry.getValue()[0]);
+        }
+        return times;
+    }
+
+    /**
+     * Return the time spent in the parallel part of the steps, while
+     * the tiles of a colour were being run.
+     *
+     * @return The nanoseconds spent running tiles, from start to end.
+     */
+    public long getParallelTime()
+    {
+        return parallelTime;
+    }
+
+    /**
+     * Forget the times kept so far.
+     */
+    public void resetTimes()
+    {
+        busyTimes.clear();
+        parallelTime = 0;
+    }
+
+    /**
+     * Cut the rows and the columns of the field into bands. The bands
+     * have equal width, or, if they are resplit, each holds about the
+     * same number of living actors.
+     *
+     * @param actors The actors of the simulation.
+     * @param field The field the actors live in.
+     */
+    private void split(List<Actor> actors, Field field)
+    {
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        int[] rowCounts = new int[depth];
+        int[] colCounts = new int[width];
+        if(resplitInterval > 0) {
+            for(Actor actor : actors) {
+                if(actor != null && actor.isAlive()) {
+                    int cell = actor.getCell();
+                    rowCounts[field.rowOf(cell)]++;
+                    colCounts[field.colOf(cell)]++;
+                }
+            }
+        }
+        bandsDown = countBands(depth);
+        bandsAcross = countBands(width);
+        rowBands = cut(rowCounts, bandsDown);
+        colBands = cut(colCounts, bandsAcross);
+        stepsSinceSplit = 0;
+    }
+
+    /**
+     * Return the number of bands a row or a column is cut into.
+     *
+     * @param length The length of the row or column.
+     *
+     * @return The number of bands.
+     */
+    private int countBands(int length)
+    {
+        int bands = (length + tileSize - 1) / tileSize;
+        if(resplitInterval > 0) {
+            // Every band but the last must be at least MIN_TILE_SIZE wide.
+            bands = Math.max(1, Math.min(bands, length / MIN_TILE_SIZE));
+        }
+        return bands;
+    }
+
+    /**
+     * Cut a row or a column into bands. Without a resplit interval each
+     * band is tileSize wide. Otherwise each band ends where the actors
+     * before it make up its share of all actors, but is never narrower
+     * than MIN_TILE_SIZE, so the tiles between two of the same colour
+     * still keep them apart.
+     *
+     * @param counts The number of actors at each position.
+     * @param bands The number of bands.
+     *
+     * @return The band of each position.
+     */
+    private int[] cut(int[] counts, int bands)
+    {
+        int length = counts.length;
+        int[] bandOf = new int[length];
+        if(resplitInterval == 0) {
+            for(int i = 0; i < length; i++) {
+                bandOf[i] = i / tileSize;
+            }
+            return bandOf;
+        }
+        long[] before = new long[length + 1];
+        for(int i = 0; i < length; i++) {
+            before[i + 1] = before[i] + counts[i];
+        }
+        int start = 0;
+        for(int band = 0; band < bands - 1; band++) {
+            long share = before[length] * (band + 1) / bands;
+            int end = start + MIN_TILE_SIZE;
+            int last = length - (bands - band - 1) * MIN_TILE_SIZE;
+            while(end < last && before[end] < share) {
+                end++;
+            }
+            for(int i = start; i < end; i++) {
+                bandOf[i] = band;
+            }
+            start = end;
+        }
+        for(int i = start; i < length; i++) {
+            bandOf[i] = bands - 1;
+        }
+        return bandOf;
+    }
+
+    /**
+     * Let the actors of one tile act, each drawing from a stream split
+     * off the tile's.
+     *
+     * @param tile The index of the tile.
+     * @param tileRandom The random stream of the tile.
+     * @param isDay The time of day.
+     * @param temperature The temperature of the surrounding.
+     */
+    private void runTile(int tile, SplittableRandom tileRandom, boolean isDay, double temperature)
+    {
+        long start = System.nanoTime();
+        List<Actor> births = tileBirths.get(tile);
+        try {
+            for(Actor actor : tileActors.get(tile)) {
+                Randomizer.bind(tileRandom.split());
+                actor.act(births, isDay, temperature);
+            }
+        }
+        finally {
+            Randomizer.unbind();
+            busyTimes.computeIfAbsent(Thread.currentThread(), thread -> new long[1])[0]
+                += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Runs a range of tiles, splitting it where it holds half of its
+     * actors to share it between the threads.
+     */
+    private class TileTask extends RecursiveAction
+    {
+        // The version of the serialized form, which is never used.
+        private static final long serialVersionUID = 1L;
+        
+        // The tiles to be run.
+        private int[] tiles;
+        // The number of actors in the tiles before each index.
+        private long[] work;
+        // The range of tiles of this task.
+        private int from, to;
+        // The random stream of each tile.
+        private SplittableRandom[] tileRandoms;
+        // The time of day.
+        private boolean isDay;
+        // The temperature of the surrounding.
+        private double temperature;
+
+        /**
+         * Create a task running the given range of tiles.
+         *
+         * @param tiles The tiles to be run.
+         * @param work The number of actors in the tiles before each index.
+         * @param from The first index of the range.
+         * @param to The index after the range.
+         * @param tileRandoms The random stream of each tile.
+         * @param isDay The time of day.
+         * @param temperature The temperature of the surrounding.
+         */
+        public TileTask(int[] tiles, long[] work, int from, int to, SplittableRandom[] tileRandoms,
+                        boolean isDay, double temperature)
+        {
+            this.tiles = tiles;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+            this.tileRandoms = tileRandoms;
+            this.isDay = isDay;
+            this.temperature = temperature;
+        }
+
+        /**
+         * Run the tile if there is only one, or else split the range.
+         */
+        protected void compute()
+        {
+            if(to - from == 1) {
+                runTile(tiles[from], tileRandoms[tiles[from]], isDay, temperature);
+            }
+            else if(to - from > 1) {
+                long half = (work[from] + work[to]) / 2;
+                int middle = from + 1;
+                while(middle < to - 1 && work[middle + 1] <= half) {
+                    middle++;
+                }
+                invokeAll(new TileTask(tiles, work, from, middle, tileRandoms, isDay, temperature),
+                          new TileTask(tiles, work, middle, to, tileRandoms, isDay, temperature));
+            }
+        }
+    }
+}
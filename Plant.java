@@ -1,6 +1,5 @@
 import java.util.List;
 import java.util.Iterator;
-import java.lang.reflect.*;
 
 /**
  * An abstract class representing shared characteristics of plants.
@@ -14,24 +13,36 @@ public abstract class Plant extends Organism
     
     // The probability of a plant getting infected.
     private static final double INFECTION_PROBABILITY = 0.01;
+    // The traits every species of plant starts from.
+    protected static final SpeciesTraits PLANT_TRAITS = new SpeciesTraits()
+        .asPlant()
+        .withDisease(INFECTION_PROBABILITY, 0.0, 0.0);
     
     // Characteristics shared by all animals (instance fields).
     
     //
     private int reproductionRange;
+    // The ability to undertake an action, lost bit by bit as it is eaten.
+    private int vitality;
+    // The reproduction probability the reproduction step was drawn for.
+    private double reproductionProbability;
+    // The step of the plant's clock at which it next reproduces.
+    private int reproductionStep;
     
     /**
      * Create a new plant at a location in field.
      * 
      * @param field The field currently occupied.
      * @param location The location within the field.
+     * @param traits The traits shared by all members of the species.
      */
-    public Plant(Field field, Location location)
+    public Plant(Field field, Location location, SpeciesTraits traits)
     {
-        super(field, location);
-        changeKingdom();
-        setInfectionProbability(INFECTION_PROBABILITY);
+        super(field, location, traits);
+        vitality = 0;
         reproductionRange = 1;
+        reproductionProbability = 0.0;
+        reproductionStep = Integer.MAX_VALUE;
     }
     
     // Generic methods.
@@ -45,25 +56,27 @@ public abstract class Plant extends Organism
     protected void reproduce(List<Actor> newActors)
     {
         Field field = getField();
-        Location newLocation = field.freeAdjacentLocation(getLocation(), reproductionRange);
-        if(newLocation != null){
-            try
-            {
-                // Uses Java Reflection to make new instances of the Animal subclass calling the method
-                Constructor<? extends Plant> constructor = getClass().getDeclaredConstructor(Field.class, Location.class);
-                Plant newPlant = constructor.newInstance(getField(), newLocation) ;
-                newActors.add(newPlant);
+        int newCell = field.freeAdjacentCell(getCell(), reproductionRange);
+        if(newCell != Field.NO_CELL){
+            Intent intent = getIntent();
+            if(intent != null) {
+                // Planning: the new plant is made when the intent is committed.
+                intent.claimBirth(newCell);
+                return;
             }
-            catch(Exception e)
-            {
-                System.out.println(e);
+            Actor newPlant = createOffspring(field.locationOf(newCell));
+            if(newPlant != null) {
+                newActors.add(newPlant);
             }
         }
     }
     
     /**
      * A plant can reproduce if it has reached its reproducing age 
-     * and their reproduction probability allows it.
+     * and their reproduction probability allows it. The chance is not
+     * tested every time: the step of the next success is drawn once and
+     * compared with the plant's clock, and drawn again if the probability
+     * changes.
      * 
      * @param reproductionAge The minimum age at which a plant can start reproducing.
      * @param reproductionProbability The probability of a plant reproducing.
@@ -72,19 +85,60 @@ public abstract class Plant extends Organism
      */
     protected boolean canReproduce(int reproductionAge, double reproductionProbability)
     {
-        return getAge() >= reproductionAge && testProbability(reproductionProbability);
+        if(getAge() < reproductionAge) {
+            return false;
+        }
+        int clock = getClock();
+        int step = reproductionStep;
+        boolean redrawn = reproductionProbability != this.reproductionProbability;
+        if(redrawn) {
+            // The test of this step counts towards the new probability.
+            step = drawStep(clock - 1, reproductionProbability);
+        }
+        boolean reproduces = clock >= step;
+        if(reproduces) {
+            step = drawStep(clock, reproductionProbability);
+        }
+        if(redrawn || reproduces) {
+            int nextStep = step;
+            update(() -> {
+                this.reproductionProbability = reproductionProbability;
+                reproductionStep = nextStep;
+            });
+        }
+        return reproduces;
+    }
+    
+    // Instance fields accessor methods.
+    
+    /**
+     * Return the vitality of the plant.
+     * 
+     * @return The vitality of the plant.
+     */
+    protected int getVitality()
+    {
+        return vitality;
     }
     
-    // Class variables accessor methods.
+    // Instance field mutator methods.
     
     /**
-     * Return the infection probability.
+     * Set the value of the vitality field.
      * 
-     * @return The infection probability.
+     * @param vitality The vitality of the plant.
+     */
+    protected void setVitality(int vitality)
+    {
+        this.vitality = vitality;
+    }
+    
+    /**
+     * Decrement the vitality of a plant. 
      */
-    protected double getInfectionProbability()
+    protected void decrementVitality()
     {
-        return INFECTION_PROBABILITY;
+        vitality--;
     }
     
     // Class variables mutator methods.
@@ -1,10 +1,17 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
  * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
  * 'useShared' to false to get different random behaviour every time.
  * 
+ * The shared generator is the root of a tree of SplittableRandom streams:
+ * each step splits a stream off it, each tile of a parallel step splits
+ * one off the step's stream, and each actor splits its own off the
+ * stream of its step or tile. A stream is bound to the thread running an
+ * actor, so whatever the number of threads, every actor draws the same
+ * numbers for a given seed, and no two threads ever share a generator.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
@@ -14,10 +21,15 @@ public class Randomizer
     
     // The default seed for control of randomization.
     private static final int SEED = 1111;
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
+    // The seed currently used for control of randomization.
+    private static long seed = SEED;
+    // A shared random generator, if required. It must only be used by one
+    // thread at a time; other threads bind streams split off it.
+    private static SplittableRandom rand = new SplittableRandom(SEED);
     // Determine whether a shared random generator is to be provided.
     private static final boolean useShared = true;
+    // The stream bound to each thread, if any, used instead of the shared one.
+    private static final ThreadLocal<SplittableRandom> bound = new ThreadLocal<>();
 
     /**
      * Constructor for objects of class Randomizer
@@ -27,29 +39,95 @@ public class Randomizer
     }
 
     /**
-     * Provide a random generator.
+     * Provide a random generator: the stream bound to the current thread,
+     * or else the shared one.
      * 
      * @return A random object.
      */
-    public static Random getRandom()
+    public static SplittableRandom getRandom()
     {
+        SplittableRandom threadRandom = bound.get();
+        if(threadRandom != null) {
+            return threadRandom;
+        }
         if(useShared) {
             return rand;
         }
         else {
-            return new Random();
+            return new SplittableRandom();
         }
     }
     
+    /**
+     * Split a new stream off the generator of the current thread. The
+     * streams split off a generator only depend on its seed and on how
+     * many were split before, not on the thread doing it.
+     * 
+     * @return A new, independent random stream.
+     */
+    public static SplittableRandom split()
+    {
+        return getRandom().split();
+    }
+    
+    /**
+     * Make the current thread use its own random stream until it is
+     * unbound. This lets work on several threads be repeated exactly,
+     * whatever order the threads run in.
+     * 
+     * @param threadRandom The stream to be used by the current thread.
+     */
+    public static void bind(SplittableRandom threadRandom)
+    {
+        bound.set(threadRandom);
+    }
+    
+    /**
+     * Make the current thread use the shared random generator again.
+     */
+    public static void unbind()
+    {
+        bound.remove();
+    }
+    
     /**
      * Reset the randomization.
      * This will have no effect if randomization is not through
-     * a shared Random generator.
+     * a shared random generator.
      */
     public static void reset()
     {
         if(useShared) {
-            rand.setSeed(SEED);
+            rand = new SplittableRandom(seed);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Change the seed of the randomization and reset it.
+     * This will have no effect if randomization is not through
+     * a shared random generator.
+     * 
+     * @param newSeed The seed to be used from now on.
+     */
+    public static void setSeed(long newSeed)
+    {
+        seed = newSeed;
+        reset();
+    }
+    
+    /**
+     * Scramble the bits of a value, so that nearby values give
+     * unrelated results. Mixing a seed with an actor's cell gives a
+     * number that does not depend on the order actors are visited in.
+     *
+     * @param value The value to be scrambled.
+     *
+     * @return The scrambled value.
+     */
+    public static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -29,6 +29,11 @@ public class Seagrass extends Plant
     private static final int RERODUCTION_RANGE = 5;
     // The rate of change of death probability.
     private static final double RATE_OF_DECAY = 0.1;
+    // The traits shared by all seagrass.
+    private static final SpeciesTraits TRAITS = PLANT_TRAITS
+        .withFoodValue(FOOD_VALUE)
+        .withAgeOfDecay(AGE_OF_DECAY)
+        .withRateOfDecay(RATE_OF_DECAY);
 
     /**
      * Create a new seagrass. A seagrass is created with age of zero.
@@ -38,12 +43,8 @@ public class Seagrass extends Plant
      */
     public Seagrass(Field field, Location location)
     {
-        super(field, location);
-        setActorName("Seagrass");
-        setAgeOfDecay(AGE_OF_DECAY);
+        super(field, location, TRAITS);
         setVitality(INITIAL_VITALITY);
-        setFoodValue(FOOD_VALUE);
-        setRateOfDecay(RATE_OF_DECAY);
         setReproductionRange(RERODUCTION_RANGE);
     }
 
@@ -68,8 +69,7 @@ public class Seagrass extends Plant
             if(getVitality() <= 0){
                 setDead();
             }
-            incrementAge();
-            decideDeath(newActors, temperature);
+            decideDeath(newActors);
         }
     }
 }
\ No newline at end of file
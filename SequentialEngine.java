@@ -0,0 +1,45 @@
+import java.util.SplittableRandom;
+
+/**
+ * A step engine that lets the actors act one after another,
+ * in the order of the list of actors, on the calling thread. Each actor
+ * draws from its own random stream, split off a stream for the step.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class SequentialEngine implements StepEngine
+{
+    /**
+     * Let every living actor act once, in list order.
+     * 
+     * @param actors The actors of the simulation. The newborn ones are
+     *               added to the end, in order of birth.
+     * @param field The field the actors live in.
+     * @param isDay The time of day.
+     * @param temperature The temperature of the surrounding.
+     * 
+     * @return The position of the first newborn actor in the list.
+     */
+    public int step(ActorList actors, Field field, boolean isDay, double temperature)
+    {
+        // The newborn actors are added after the ones that act.
+        int born = actors.size();
+        // Let all living actors act.
+        SplittableRandom stepRandom = Randomizer.split();
+        try {
+            for(int i = 0; i < born; i++) {
+                Actor actor = actors.get(i);
+                if(actor != null && actor.isAlive()) {
+                    Randomizer.bind(stepRandom.split());
+                    actor.act(actors, isDay, temperature);
+                }
+            }
+        }
+        finally {
+            Randomizer.unbind();
+        }
+
+        return born;
+    }
+}
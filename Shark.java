@@ -32,6 +32,12 @@ public class Shark extends Animal
     private static final double RATE_OF_DECAY = 0.1;
     // The temperature above which sharks are not able to move around and hunt.
     private static final double TEMPERATURE_LIMIT = 30.0;
+    // The traits shared by all sharks.
+    private static final SpeciesTraits TRAITS = ANIMAL_TRAITS
+        .withAgeOfDecay(AGE_OF_DECAY)
+        .withMaxFoodLevel(MAX_FOOD_LEVEL)
+        .withDiet(DEFAULT_DIET)
+        .withRateOfDecay(RATE_OF_DECAY);
     
 
     /**
@@ -43,16 +49,11 @@ public class Shark extends Animal
      */
     public Shark(Field field, Location location)
     {
-        super(field, location);
-        setActorName("Shark");
+        super(field, location, TRAITS);
         if(getRandom().nextDouble() <= MALE_TO_FEMALE_RATIO){
             changeGender();
         }
-        setAgeOfDecay(AGE_OF_DECAY);
-        setDiet(DEFAULT_DIET);
-        setMaxFoodLevel(MAX_FOOD_LEVEL);
         incrementFoodLevel(getMaxFoodLevel()/2);
-        setRateOfDecay(RATE_OF_DECAY);
     }
 
     /**
@@ -79,14 +80,14 @@ public class Shark extends Animal
             }
             // Try to find one of its food sources, unless the temperature is too high.
             if(temperature < TEMPERATURE_LIMIT){
-                Location newLocation = findFood();
-                if(newLocation == null) { 
+                int newCell = findFood();
+                if(newCell == Field.NO_CELL) { 
                     // No food found.
-                    newLocation = getField().freeAdjacentLocation(getLocation());
+                    newCell = getField().freeAdjacentCell(getCell());
                 }
                 // Try to move to a new location.
-                if(newLocation != null) {
-                    setLocation(newLocation);
+                if(newCell != Field.NO_CELL) {
+                    move(newCell);
                 }
                 else {
                     // Overcrowding.
@@ -94,9 +95,7 @@ public class Shark extends Animal
                 }
             }
 
-            incrementAge();
-            decrementFoodLevel();
-            decideDeath(newSharks, temperature);
+            decideDeath(newSharks);
         }
     }
 }
\ No newline at end of file
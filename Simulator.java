@@ -1,7 +1,6 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.awt.Color;
 
 /**
@@ -23,6 +22,8 @@ public class Simulator
     private static final int DEFAULT_DAYNIGHT_CYCLE = 100;
     // The default daily temperature increase
     private static final double DEFAULT_TEMP_INCREASE = 1;
+    // The default pause between steps when the simulation is shown, in milliseconds.
+    private static final int DEFAULT_STEP_DELAY = 60;
     // The probability that a sark will be created in any given grid position.
     private static final double SHARK_CREATION_PROBABILITY = 0.015;
     // The probability that a turtle will be created in any given grid position.
@@ -40,14 +41,29 @@ public class Simulator
 
     // Instance fields representing configuration information for the simulation. (Instace fields)
     
-    // List of actors in the field.
-    private List<Actor> actors;
+    // List of actors in the field, with the dead left as tombstones until
+    // the end of the step.
+    private ActorList actors;
+    // The actors that only wait to expire, such as corpses, held until
+    // the step they expire in instead of acting every step.
+    private TimerWheel<Actor> expiries;
+    // The actors that rest at the current time of day, left out of the
+    // steps until day turns to night or back.
+    private List<Actor> dormant;
+    // The deaths of age, hunger and temperature, decided for all organisms at once.
+    private MortalityPass mortality;
     // The current state of the field.
     private Field field;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
+    // A graphical view of the simulation, or null if it runs without one.
     private SimulatorView view;
+    // Statistics used to decide whether the simulation is still viable.
+    private FieldStats stats;
+    // The pause between steps, in milliseconds.
+    private int stepDelay;
+    // Runs each step of the simulation.
+    private StepEngine engine;
     // The amount of day light.
     private double dayLight;
     // Represent the time of day.
@@ -87,27 +103,50 @@ public class Simulator
      */
     public Simulator(int depth, int width, int dayNightCycle, double dailyTempIncrease)
     {
-        if(width <= 0 || depth <= 0) {
-            System.out.println("The dimensions must be greater than zero.");
-            System.out.println("Using default values.");
-            depth = DEFAULT_DEPTH;
-            width = DEFAULT_WIDTH;
-        }
+        this(createField(depth, width), dayNightCycle, dailyTempIncrease);
+    }
 
-        actors = new ArrayList<>();
-        field = new Field(depth, width);
+    /**
+     * Create a simulation on the given field. This allows the field to
+     * use any kind of storage, e.g. a FlatField instead of the default one.
+     * 
+     * @param field The field to run the simulation on. It will be emptied.
+     * @param dayNightCycle The amount of steps of a day-night cycle.
+     * @param dailyTempIncrease The amount the average temperature increases per day-night cycle.
+     */
+    public Simulator(Field field, int dayNightCycle, double dailyTempIncrease)
+    {
+        this(field, dayNightCycle, dailyTempIncrease, true);
+    }
 
-        // Create a view of the state of each location in the field.
-        view = new SimulatorView(depth, width);
-        view.setColor(Crab.class, Color.YELLOW);
-        view.setColor(Shark.class, Color.BLUE);
-        view.setColor(Turtle.class, Color.ORANGE);
-        view.setColor(SmallFish.class, new Color(102, 255, 255, 255));
-        view.setColor(Dolphin.class, new Color(178, 102, 255, 255));
-        view.setColor(Seagrass.class, new Color(17, 156, 2, 255));
-        view.setColor(Algae.class, new Color(0, 255, 145, 255));
-        view.setColor(Corpse.class, new Color(150, 75, 0, 255));
-        
+    /**
+     * Create a simulation on the given field, with or without a window.
+     * Without a window the simulation runs at full speed and can be used
+     * where no display is available.
+     * 
+     * @param field The field to run the simulation on. It will be emptied.
+     * @param dayNightCycle The amount of steps of a day-night cycle.
+     * @param dailyTempIncrease The amount the average temperature increases per day-night cycle.
+     * @param showView Whether the simulation is shown in a window.
+     */
+    public Simulator(Field field, int dayNightCycle, double dailyTempIncrease, boolean showView)
+    {
+        actors = new ActorList();
+        expiries = new TimerWheel<>();
+        dormant = new ArrayList<>();
+        mortality = new MortalityPass();
+        this.field = field;
+        stats = new FieldStats();
+        engine = new SequentialEngine();
+
+        if(showView) {
+            view = createView(field.getDepth(), field.getWidth());
+            stepDelay = DEFAULT_STEP_DELAY;
+        }
+        else {
+            view = null;
+            stepDelay = 0;
+        }
         
         // Initialise the fields.
         this.dayNightCycle = dayNightCycle;
@@ -126,6 +165,47 @@ public class Simulator
         reset();
     }
 
+    /**
+     * Create a view of the state of each location in the field.
+     * 
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     * 
+     * @return The new view.
+     */
+    private static SimulatorView createView(int depth, int width)
+    {
+        SimulatorView view = new SimulatorView(depth, width);
+        view.setColor(Crab.class, Color.YELLOW);
+        view.setColor(Shark.class, Color.BLUE);
+        view.setColor(Turtle.class, Color.ORANGE);
+        view.setColor(SmallFish.class, new Color(102, 255, 255, 255));
+        view.setColor(Dolphin.class, new Color(178, 102, 255, 255));
+        view.setColor(Seagrass.class, new Color(17, 156, 2, 255));
+        view.setColor(Algae.class, new Color(0, 255, 145, 255));
+        view.setColor(Corpse.class, new Color(150, 75, 0, 255));
+        return view;
+    }
+
+    /**
+     * Create the default field of the given size.
+     * 
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * 
+     * @return The new field.
+     */
+    private static Field createField(int depth, int width)
+    {
+        if(width <= 0 || depth <= 0) {
+            System.out.println("The dimensions must be greater than zero.");
+            System.out.println("Using default values.");
+            depth = DEFAULT_DEPTH;
+            width = DEFAULT_WIDTH;
+        }
+        return new ArrayField(depth, width);
+    }
+
     /**
      * Run the simulation from its current state for a reasonably long period,
      * (4000 steps).
@@ -169,12 +249,91 @@ public class Simulator
      */
     public void simulate(int numSteps)
     {
-        for(int step = 1; step <= numSteps && view.isViable(field); step++) {
+        for(int step = 1; step <= numSteps && isViable(); step++) {
             simulateOneStep();
-            delay(60);   // uncomment this to run more slowly
+            if(stepDelay > 0) {
+                delay(stepDelay);
+            }
         }
     }
 
+    /**
+     * Determine whether the simulation is still viable.
+     * I.e., should it continue to run.
+     * 
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable()
+    {
+        return stats.isViable(field);
+    }
+
+    /**
+     * Return the number of actors of one class in the field.
+     * 
+     * @param actorClass The class of actor to count.
+     * 
+     * @return The number of actors of that class.
+     */
+    public int getCount(Class<?> actorClass)
+    {
+        return stats.getCount(field, actorClass);
+    }
+
+    /**
+     * Change the pause between steps.
+     * 
+     * @param millisec The pause between steps, in milliseconds. Zero runs at full speed.
+     */
+    public void setStepDelay(int millisec)
+    {
+        stepDelay = millisec;
+    }
+
+    /**
+     * Change the way each step is run, e.g. to run it on several threads.
+     * The engine that is replaced is closed.
+     * 
+     * @param engine The engine running each step.
+     */
+    public void setEngine(StepEngine engine)
+    {
+        if(this.engine != engine) {
+            this.engine.close();
+        }
+        this.engine = engine;
+    }
+
+    /**
+     * Return the current step of the simulation.
+     * 
+     * @return The current step.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * Return the current temperature of the surrounding.
+     * 
+     * @return The current temperature.
+     */
+    public double getTemperature()
+    {
+        return temperature;
+    }
+
+    /**
+     * Return the time of day.
+     * 
+     * @return "day" or "night".
+     */
+    public String getDayTime()
+    {
+        return dayTime;
+    }
+
     /**
      * Run the simulation from its current state for a single step.
      * Iterate over the whole field updating the state of each
@@ -189,23 +348,23 @@ public class Simulator
         if(step == timeTracker){
             changeDayTime();
             timeTracker = timeTracker + halfCycle;
+            updateDormancy();
         }
+        field.startStep(isDay);
 
-        // Provide space for newborn animals.
-        List<Actor> newActors = new ArrayList<>();        
-        // Let all rabbits act.
-        for(Iterator<Actor> it = actors.iterator(); it.hasNext(); ) {
-            Actor actor = it.next();
-            actor.act(newActors, isDay, temperature);
-            if(!actor.isAlive()) {
-                it.remove();
-            }
-        }
+        // Let all actors act, let the organisms die that are old, starved or
+        // too hot or cold, settle the newborn ones and remove the expired.
+        int born = engine.step(actors, field, isDay, temperature);
+        mortality.run(field, temperature, actors);
+        settleNewborns(born);
+        expire();
+        // Drop the actors that have died from the list and the actor store.
+        actors.compact();
+        field.getActorStore().compact();
+        field.endStep();
+        stats.reset();
 
-        // Add the newly born foxes and rabbits to the main lists.
-        actors.addAll(newActors);
-
-        view.showStatus(step, field, dayLight, dayTime, temperature);
+        showStatus();
     }
 
     /**
@@ -215,13 +374,106 @@ public class Simulator
     {
         step = 0;
         actors.clear();
+        expiries.clear();
+        dormant.clear();
         populate();
+        // Make the starting population visible to fields that only show a step once it is over.
+        field.endStep();
         isDay = true;
         computeEnvironmentTraits();
         double denominator = dayNightCycle;
         timeTracker = denominator/4;
+        stats.reset();
         // Show the starting state in the view.
-        view.showStatus(step, field, dayLight, dayTime, temperature);
+        showStatus();
+    }
+
+    /**
+     * Settle the actors added to the end of the list during the current
+     * step. The ones that only wait to expire are held until the step
+     * they expire in, and the ones that rest at this time of day are left
+     * dormant; both are buried in the list. The others stay where they are.
+     * 
+     * @param born The position of the first newborn actor in the list.
+     */
+    private void settleNewborns(int born)
+    {
+        for(int i = born; i < actors.size(); i++) {
+            Actor actor = actors.get(i);
+            if(actor == null || !actor.isAlive()) {
+                continue;
+            }
+            if(actor instanceof Expiring) {
+                expiries.schedule(actor, step + ((Expiring) actor).getLifetime());
+                actors.bury(i);
+            }
+            else if(!actor.isActive(isDay, temperature)) {
+                rest(actor, true);
+                dormant.add(actor);
+                actors.bury(i);
+            }
+        }
+    }
+
+    /**
+     * Wake the dormant actors that are still alive when day turns to
+     * night or back, and send to rest the actors that are not active at
+     * the new time of day. Resting actors are not visited by the steps.
+     */
+    private void updateDormancy()
+    {
+        for(Actor actor : dormant) {
+            if(actor.isAlive()) {
+                rest(actor, false);
+                actors.add(actor);
+            }
+        }
+        dormant.clear();
+        actors.removeIf(actor -> {
+            if(actor.isAlive() && !actor.isActive(isDay, temperature)) {
+                rest(actor, true);
+                dormant.add(actor);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Mark an actor in the actor store as resting or not, so that the
+     * passes over the store leave it alone while it rests.
+     * 
+     * @param actor The living actor.
+     * @param dormant True if the actor rests, false if it wakes.
+     */
+    private void rest(Actor actor, boolean dormant)
+    {
+        field.getActorStore().setFlag(actor.getSlot(), ActorStore.DORMANT, dormant);
+    }
+
+    /**
+     * Remove the actors that expire in the current step from the field,
+     * unless they are already gone.
+     */
+    private void expire()
+    {
+        List<Actor> expired = new ArrayList<>();
+        expiries.advance(step, expired);
+        for(Actor actor : expired) {
+            if(actor.isAlive()) {
+                actor.setDead();
+            }
+        }
+    }
+
+    /**
+     * Show the current state in the view, if there is one.
+     */
+    private void showStatus()
+    {
+        if(view != null) {
+            view.showStatus(step, field, dayLight, dayTime, temperature);
+        }
     }
 
     /**
@@ -229,7 +481,7 @@ public class Simulator
      */
     private void populate()
     {
-        Random rand = Randomizer.getRandom();
+        SplittableRandom rand = Randomizer.getRandom();
         field.clear();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
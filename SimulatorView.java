@@ -1,8 +1,6 @@
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
  * A graphical view of the simulation grid.
@@ -39,8 +37,8 @@ public class SimulatorView extends JFrame
 
     // Instance fields.
     
-    // A map for storing colors for participants in the simulation
-    private Map<Class, Color> colors;
+    // The colors of the participants in the simulation, indexed by species id
+    private Color[] colors;
     // A statistics object computing and storing simulation information
     private FieldStats stats;
 
@@ -53,7 +51,7 @@ public class SimulatorView extends JFrame
     public SimulatorView(int height, int width)
     {
         stats = new FieldStats();
-        colors = new LinkedHashMap<>();
+        colors = new Color[Species.MAX_ID + 1];
 
         setTitle("Fox and Rabbit Simulation");
         stepLabel = new JLabel(STEP_PREFIX, JLabel.CENTER);
@@ -83,21 +81,21 @@ public class SimulatorView extends JFrame
      */
     public void setColor(Class animalClass, Color color)
     {
-        colors.put(animalClass, color);
+        colors[Species.idOf(animalClass)] = color;
     }
 
     /**
      * Return the color of the objects.
      * 
-     * @param animalClass The class' name.
+     * @param species The species id of the animal.
      * 
-     * @return The color to be used for a given class of animal.
+     * @return The color to be used for a given species of animal.
      */
-    private Color getColor(Class animalClass)
+    private Color getColor(int species)
     {
-        Color col = colors.get(animalClass);
+        Color col = colors[species];
         if(col == null) {
-            // no color defined for this class
+            // no color defined for this species
             return UNKNOWN_COLOR;
         }
         else {
@@ -127,22 +125,16 @@ public class SimulatorView extends JFrame
 
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null && animal instanceof Actor) {
-                    stats.incrementCount(animal.getClass());
-                    if(animal instanceof Corpse){
-                        fieldView.drawMark(col, row, getColor(animal.getClass()));
+                int species = field.getSpeciesAt(row, col);
+                if(species != Species.NONE) {
+                    stats.incrementCount(species);
+                    Object animal = field.getObjectAt(row, col);
+                    if(animal instanceof Organism && ((Organism) animal).isInfected()){
+                        fieldView.drawMark(col, row, INFECTED_COLOR);
                     }
                     else{
-                        Organism organism = (Organism) animal;
-                        if(organism.isInfected()){
-                            fieldView.drawMark(col, row, INFECTED_COLOR);
-                        }
-                        else{
-                            fieldView.drawMark(col, row, getColor(animal.getClass()));
-                        }
+                        fieldView.drawMark(col, row, getColor(species));
                     }
-
                 }
                 else {
                     fieldView.drawMark(col, row, computeEmptyColor(dayLight));
@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A registry handing out a small integer id for every species in the
+ * simulation. A species is identified by its name, which is the simple
+ * name of the class that models it (e.g. "Shark"). Ids start at one; zero
+ * is reserved for empty locations.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class Species
+{
+    // Class variables.
+    
+    // The id used for empty locations.
+    public static final int NONE = 0;
+    // The largest id that can be handed out, so that ids fit into a byte
+    // and a set of species fits into a long mask.
+    public static final int MAX_ID = Long.SIZE - 1;
+    // The ids that have been handed out, by species name.
+    private static final HashMap<String, Integer> ids = new HashMap<>();
+    // The species names, indexed by id.
+    private static final List<String> names = new ArrayList<>();
+    // The ids of the classes that have been looked up so far.
+    private static final ClassValue<Integer> classIds = new ClassValue<>()
+    {
+        protected Integer computeValue(Class<?> type)
+        {
+            return idOf(type.getSimpleName());
+        }
+    };
+
+    static {
+        names.add(null);
+    }
+
+    /**
+     * Return the id of the species with the given name, registering
+     * the species if it has not been seen before.
+     * 
+     * @param name The name of the species.
+     * 
+     * @return The id of the species.
+     */
+    public static synchronized int idOf(String name)
+    {
+        Integer id = ids.get(name);
+        if(id == null) {
+            if(names.size() > MAX_ID) {
+                throw new IllegalStateException("Too many species: " + name);
+            }
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+    
+    /**
+     * Return the id of the species modelled by the given class.
+     * 
+     * @param type The class modelling the species.
+     * 
+     * @return The id of the species.
+     */
+    public static int idOf(Class<?> type)
+    {
+        return classIds.get(type);
+    }
+    
+    /**
+     * Return the id of the species of the given object. An actor's id
+     * is read from the actor, without looking up its class.
+     * 
+     * @param obj The object, may be null.
+     * 
+     * @return The id of the species, or NONE if the object is null.
+     */
+    public static int idOf(Object obj)
+    {
+        if(obj == null) {
+            return NONE;
+        }
+        if(obj instanceof Actor) {
+            return ((Actor) obj).getSpecies();
+        }
+        return idOf(obj.getClass());
+    }
+    
+    /**
+     * Return a mask holding the given species, for combining sets of species.
+     * 
+     * @param id The id of the species.
+     * 
+     * @return A mask with only the bit of the species set.
+     */
+    public static long maskOf(int id)
+    {
+        return 1L << id;
+    }
+    
+    /**
+     * Return the name of the species with the given id.
+     * 
+     * @param id The id of the species.
+     * 
+     * @return The name of the species, or null if the id is unknown.
+     */
+    public static synchronized String getName(int id)
+    {
+        if(id <= NONE || id >= names.size()) {
+            return null;
+        }
+        return names.get(id);
+    }
+    
+    /**
+     * Return the number of ids handed out so far, including NONE.
+     * 
+     * @return One more than the largest id handed out.
+     */
+    public static synchronized int count()
+    {
+        return names.size();
+    }
+}
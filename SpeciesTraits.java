@@ -0,0 +1,384 @@
+import java.util.List;
+
+/**
+ * The traits of an organism that are the same for every member of its
+ * species: its kingdom, the clock it lives by, age of decay, diet,
+ * maximum food level, worth as a food source, the temperatures it survives in, and its chances
+ * of catching, spreading and curing a disease, of dying of age and of
+ * leaving a corpse.
+ *
+ * Each species builds one set of traits and shares it between all of
+ * its members, which only keep the state of the individual. A set of
+ * traits never changes: the with methods return a changed copy.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class SpeciesTraits
+{
+    // Instance fields.
+
+    // Whether the species is from the animal kingdom.
+    private boolean isAnimal;
+    // Whether a member only lives through the steps run during the day.
+    private boolean livesByDay;
+    // The age at which a member starts to have a chance of dying of age.
+    private int ageOfDecay;
+    // The maximum food level of a member.
+    private int maxFoodLevel;
+    // The worth of a member as a food source.
+    private int foodValue;
+    // The food sources of the species, as a mask of species ids.
+    private long dietMask;
+    // The minimum temperature required for a member to survive.
+    private double minTemp;
+    // The maximum temperature under which a member can survive.
+    private double maxTemp;
+    // The probability of a member getting infected by a disease.
+    private double infectionProbability;
+    // The probability of a member passing the disease to another organism.
+    private double spreadingProbability;
+    // The probability of a member curing itself from a disease.
+    private double cureProbability;
+    // The probability of a member leaving a corpse after dying.
+    private double corpseProbability;
+    // The rate of change of death probability.
+    private double rateOfDecay;
+
+    /**
+     * Create the default traits: an animal that eats nothing, survives
+     * any temperature and never gets infected, dies of age or leaves a corpse.
+     */
+    public SpeciesTraits()
+    {
+        isAnimal = true;
+        livesByDay = false;
+        ageOfDecay = 0;
+        maxFoodLevel = 1;
+        foodValue = 0;
+        dietMask = 0;
+        minTemp = -99;
+        maxTemp = 99;
+        infectionProbability = 0.0;
+        spreadingProbability = 0.0;
+        cureProbability = 0.0;
+        corpseProbability = 0.0;
+        rateOfDecay = 0.0;
+    }
+
+    /**
+     * Create a copy of a set of traits.
+     *
+     * @param other The traits to be copied.
+     */
+    private SpeciesTraits(SpeciesTraits other)
+    {
+        isAnimal = other.isAnimal;
+        livesByDay = other.livesByDay;
+        ageOfDecay = other.ageOfDecay;
+        maxFoodLevel = other.maxFoodLevel;
+        foodValue = other.foodValue;
+        dietMask = other.dietMask;
+        minTemp = other.minTemp;
+        maxTemp = other.maxTemp;
+        infectionProbability = other.infectionProbability;
+        spreadingProbability = other.spreadingProbability;
+        cureProbability = other.cureProbability;
+        corpseProbability = other.corpseProbability;
+        rateOfDecay = other.rateOfDecay;
+    }
+
+    // Accessor methods.
+
+    /**
+     * Check whether the species is from the animal kingdom.
+     *
+     * @return True if it is from the animal kingdom, False if it is from the plant kingdom.
+     */
+    public boolean isAnimal()
+    {
+        return isAnimal;
+    }
+
+    /**
+     * Check whether a member only lives through the steps run during
+     * the day, so it ages and gets hungry by a clock that stops at night.
+     *
+     * @return True if it lives by the day clock, False if by the step of the simulation.
+     */
+    public boolean livesByDay()
+    {
+        return livesByDay;
+    }
+
+    /**
+     * Return the current step of the clock a member lives by.
+     *
+     * @param field The field the member lives in.
+     *
+     * @return The number of day steps or of all steps of the field so far.
+     */
+    public int getClock(Field field)
+    {
+        return livesByDay ? field.getDaySteps() : field.getStep();
+    }
+
+    /**
+     * Return the age at which a member starts to have a chance of dying of age.
+     *
+     * @return The age of decay.
+     */
+    public int getAgeOfDecay()
+    {
+        return ageOfDecay;
+    }
+
+    /**
+     * Return the maximum food level of a member.
+     *
+     * @return The maximum food level.
+     */
+    public int getMaxFoodLevel()
+    {
+        return maxFoodLevel;
+    }
+
+    /**
+     * Return the worth of a member as a food source.
+     *
+     * @return The food value.
+     */
+    public int getFoodValue()
+    {
+        return foodValue;
+    }
+
+    /**
+     * Return the diet of the species as a mask of species ids.
+     *
+     * @return The diet mask, see Species.maskOf.
+     */
+    public long getDietMask()
+    {
+        return dietMask;
+    }
+
+    /**
+     * Return the minimum temperature of a member surviving.
+     *
+     * @return The minimum temperature.
+     */
+    public double getMinTemp()
+    {
+        return minTemp;
+    }
+
+    /**
+     * Return the maximum temperature of a member surviving.
+     *
+     * @return The maximum temperature.
+     */
+    public double getMaxTemp()
+    {
+        return maxTemp;
+    }
+
+    /**
+     * Return the probability of a member getting infected.
+     *
+     * @return The infection probability.
+     */
+    public double getInfectionProbability()
+    {
+        return infectionProbability;
+    }
+
+    /**
+     * Return the probability of a member passing on a disease.
+     *
+     * @return The spreading probability.
+     */
+    public double getSpreadingProbability()
+    {
+        return spreadingProbability;
+    }
+
+    /**
+     * Return the probability of a member curing itself.
+     *
+     * @return The cure probability.
+     */
+    public double getCureProbability()
+    {
+        return cureProbability;
+    }
+
+    /**
+     * Return the probability of a member leaving a corpse.
+     *
+     * @return The corpse probability.
+     */
+    public double getCorpseProbability()
+    {
+        return corpseProbability;
+    }
+
+    /**
+     * Return the rate of change of death probability.
+     *
+     * @return The rate of decay.
+     */
+    public double getRateOfDecay()
+    {
+        return rateOfDecay;
+    }
+
+    // Copy methods.
+
+    /**
+     * Return a copy of these traits for the plant kingdom.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits asPlant()
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.isAnimal = false;
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits for a species that only lives
+     * through the steps run during the day.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withDayClock()
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.livesByDay = true;
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits with another age of decay.
+     *
+     * @param ageOfDecay The age at which a member starts to have a chance of dying of age.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withAgeOfDecay(int ageOfDecay)
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.ageOfDecay = ageOfDecay;
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits with another maximum food level.
+     *
+     * @param maxFoodLevel The maximum food level of a member.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withMaxFoodLevel(int maxFoodLevel)
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.maxFoodLevel = maxFoodLevel;
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits with another food value.
+     *
+     * @param foodValue The worth of a member as a food source.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withFoodValue(int foodValue)
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.foodValue = foodValue;
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits with another diet.
+     *
+     * @param diet The names of the species the members can eat.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withDiet(List<String> diet)
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.dietMask = 0;
+        for(String foodName : diet) {
+            traits.dietMask |= Species.maskOf(Species.idOf(foodName));
+        }
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits with another range of temperatures.
+     *
+     * @param minTemp The minimum temperature of a member surviving.
+     * @param maxTemp The maximum temperature of a member surviving.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withTemperatures(double minTemp, double maxTemp)
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.minTemp = minTemp;
+        traits.maxTemp = maxTemp;
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits with other disease probabilities.
+     *
+     * @param infectionProbability The probability of a member catching a disease.
+     * @param spreadingProbability The probability of a member passing the disease on.
+     * @param cureProbability The probability of a member curing itself.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withDisease(double infectionProbability, double spreadingProbability,
+                                     double cureProbability)
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.infectionProbability = infectionProbability;
+        traits.spreadingProbability = spreadingProbability;
+        traits.cureProbability = cureProbability;
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits with another corpse probability.
+     *
+     * @param corpseProbability The probability of a member leaving a corpse.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withCorpseProbability(double corpseProbability)
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.corpseProbability = corpseProbability;
+        return traits;
+    }
+
+    /**
+     * Return a copy of these traits with another rate of decay.
+     *
+     * @param rateOfDecay The rate of change of death probability.
+     *
+     * @return The changed traits.
+     */
+    public SpeciesTraits withRateOfDecay(double rateOfDecay)
+    {
+        SpeciesTraits traits = new SpeciesTraits(this);
+        traits.rateOfDecay = rateOfDecay;
+        return traits;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * A way of running one step of the simulation: letting every actor act
+ * once and adding the newborn ones to the end of the list of actors.
+ * Actors that die are left in the list as tombstones, for the caller
+ * to compact.
+ * 
+ * An engine may hold threads of its own, which are stopped by close.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public interface StepEngine extends AutoCloseable
+{
+    /**
+     * Let every living actor act once.
+     * 
+     * @param actors The actors of the simulation. The engine may reorder
+     *               them, and adds the newborn ones to the end.
+     * @param field The field the actors live in.
+     * @param isDay The time of day.
+     * @param temperature The temperature of the surrounding.
+     * 
+     * @return The position of the first newborn actor in the list.
+     */
+    int step(ActorList actors, Field field, boolean isDay, double temperature);
+    
+    /**
+     * Stop the threads of the engine, if it has any. The engine cannot
+     * run any more steps afterwards.
+     */
+    default void close()
+    {
+    }
+}
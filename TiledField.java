@@ -0,0 +1,244 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A field for very large, mostly empty grids. The grid is cut into square
+ * tiles and a tile is only created once an animal is placed in it. Tiles
+ * that have been empty for a number of steps are released again, so the
+ * memory used grows with the populated area rather than with the grid.
+ * 
+ * The field keeps no dense indices of its contents; neighbourhood queries
+ * look at the cells themselves, across tile boundaries where needed.
+ * Cells of the same tile may be changed from several threads at once.
+ * A missing tile is created with a compare-and-set of its entry, and the
+ * count of a tile is changed atomically, so storing takes no lock.
+ * 
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class TiledField extends Field
+{
+    // Class variables.
+    
+    // The default length of a tile side. Must be a power of two.
+    private static final int DEFAULT_TILE_SIZE = 64;
+    // The default number of steps a tile may stay empty before it is released.
+    private static final int DEFAULT_RELEASE_AFTER = 10;
+    
+    // Instance fields.
+    
+    // The tiles, row by row, or null where no tile has been created.
+    private AtomicReferenceArray<Tile> tiles;
+    // The number of tiles in each row of tiles.
+    private int tilesAcross;
+    // The length of a tile side, as a power of two.
+    private int tileShift;
+    // The length of a tile side minus one, for masking.
+    private int tileMask;
+    // The number of steps a tile may stay empty before it is released.
+    private int releaseAfter;
+    // The number of steps that have ended so far.
+    private int step;
+    // The number of tiles that currently exist.
+    private AtomicInteger tileCount;
+
+    /**
+     * Represent a field of the given dimensions, with default tile size
+     * and release delay.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public TiledField(int depth, int width)
+    {
+        this(depth, width, DEFAULT_TILE_SIZE, DEFAULT_RELEASE_AFTER);
+    }
+    
+    /**
+     * Represent a field of the given dimensions.
+     * 
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param tileSize The length of a tile side. Must be a power of two.
+     * @param releaseAfter The number of steps a tile may stay empty before it is released.
+     */
+    public TiledField(int depth, int width, int tileSize, int releaseAfter)
+    {
+        super(depth, width, false);
+        if(tileSize <= 0 || Integer.bitCount(tileSize) != 1) {
+            throw new IllegalArgumentException("Tile size must be a power of two: " + tileSize);
+        }
+        tileShift = Integer.numberOfTrailingZeros(tileSize);
+        tileMask = tileSize - 1;
+        this.releaseAfter = releaseAfter;
+        tilesAcross = (width + tileMask) >> tileShift;
+        int tilesDown = (depth + tileMask) >> tileShift;
+        tiles = new AtomicReferenceArray<>(tilesAcross * tilesDown);
+        step = 0;
+        tileCount = new AtomicInteger();
+    }
+    
+    /**
+     * Return the animal in the given cell, if any.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int cell)
+    {
+        int row = rowOf(cell);
+        int col = cell - row * getWidth();
+        Tile tile = tiles.get(tileIndex(row, col));
+        if(tile == null) {
+            return null;
+        }
+        return tile.objects[slot(row, col)];
+    }
+    
+    /**
+     * Return the species id of the animal in the given cell.
+     * 
+     * @param cell The cell index of the location.
+     * 
+     * @return The species id of the animal, or Species.NONE if the cell is empty.
+     */
+    public int getSpeciesAt(int cell)
+    {
+        int row = rowOf(cell);
+        int col = cell - row * getWidth();
+        Tile tile = tiles.get(tileIndex(row, col));
+        if(tile == null) {
+            return Species.NONE;
+        }
+        return tile.species[slot(row, col)];
+    }
+    
+    /**
+     * Release the tiles that have stayed empty for long enough.
+     */
+    public void endStep()
+    {
+        step++;
+        for(int i = 0; i < tiles.length(); i++) {
+            Tile tile = tiles.get(i);
+            if(tile != null && tile.count.get() == 0 && step - tile.emptySince >= releaseAfter) {
+                tiles.set(i, null);
+                tileCount.decrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * Return the number of tiles that currently exist.
+     * 
+     * @return The number of tiles.
+     */
+    public int getTileCount()
+    {
+        return tileCount.get();
+    }
+    
+    /**
+     * Store an animal in the given cell, or empty the cell.
+     * A tile is created for the cell if it has none yet.
+     * 
+     * @param cell The cell index of the location.
+     * @param animal The animal to be stored, or null to empty the cell.
+     * @param species The species id of the animal, or Species.NONE.
+     */
+    protected void store(int cell, Object animal, int species)
+    {
+        int row = rowOf(cell);
+        int col = cell - row * getWidth();
+        int index = tileIndex(row, col);
+        Tile tile = tiles.get(index);
+        if(tile == null) {
+            if(animal == null) {
+                return;
+            }
+            Tile created = new Tile(1 << (2 * tileShift));
+            if(tiles.compareAndSet(index, null, created)) {
+                tile = created;
+                tileCount.incrementAndGet();
+            }
+            else {
+                // Another thread created the tile first.
+                tile = tiles.get(index);
+            }
+        }
+        int slot = slot(row, col);
+        int change = (animal != null ? 1 : 0) - (tile.objects[slot] != null ? 1 : 0);
+        tile.objects[slot] = animal;
+        tile.species[slot] = (byte) species;
+        int count = change == 0 ? tile.count.get() : tile.count.addAndGet(change);
+        if(count == 0) {
+            tile.emptySince = step;
+        }
+    }
+    
+    /**
+     * Empty every cell of the storage, releasing all tiles.
+     */
+    protected void removeAll()
+    {
+        for(int i = 0; i < tiles.length(); i++) {
+            tiles.set(i, null);
+        }
+        tileCount.set(0);
+    }
+    
+    /**
+     * Return the index of the tile holding a position.
+     * 
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * 
+     * @return The index of the tile.
+     */
+    private int tileIndex(int row, int col)
+    {
+        return (row >> tileShift) * tilesAcross + (col >> tileShift);
+    }
+    
+    /**
+     * Return the slot of a position within its tile.
+     * 
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * 
+     * @return The slot within the tile.
+     */
+    private int slot(int row, int col)
+    {
+        return ((row & tileMask) << tileShift) + (col & tileMask);
+    }
+    
+    /**
+     * One square tile of the field.
+     */
+    private static class Tile
+    {
+        // The animal in each slot of the tile.
+        private final Object[] objects;
+        // The species id of the animal in each slot of the tile.
+        private final byte[] species;
+        // The number of occupied slots.
+        private final AtomicInteger count;
+        // The step at which the tile last became empty.
+        private int emptySince;
+        
+        /**
+         * Create an empty tile.
+         * 
+         * @param size The number of slots of the tile.
+         */
+        public Tile(int size)
+        {
+            objects = new Object[size];
+            species = new byte[size];
+            count = new AtomicInteger();
+            emptySince = 0;
+        }
+    }
+}
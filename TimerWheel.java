@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hierarchical timer wheel: it holds items until the step they are due
+ * in, and hands them out when the simulation reaches that step. Adding an
+ * item and handing it out take constant time, and an item costs nothing
+ * in the steps it waits.
+ *
+ * The wheel has LEVELS levels of SLOTS slots each. An item due within
+ * the current run of SLOTS steps is put in the slot of its step on the
+ * lowest level; one due further away goes to a higher level, where each
+ * slot covers SLOTS times as many steps. When the wheel reaches the start
+ * of a higher slot, its items are moved down to the level below. Items
+ * too far away for the highest level wait in an overflow list.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class TimerWheel<E>
+{
+    // Class variables.
+
+    // The number of bits of a step used for a slot on each level.
+    private static final int SLOT_BITS = 6;
+    // The number of slots on each level.
+    private static final int SLOTS = 1 << SLOT_BITS;
+    // The number of levels.
+    private static final int LEVELS = 4;
+
+    // Instance fields.
+
+    // The items of each slot of each level.
+    private List<List<Entry<E>>> slots;
+    // The items due after the range of the highest level.
+    private List<Entry<E>> overflow;
+    // The last step the wheel has reached.
+    private long now;
+    // The number of items held.
+    private int size;
+
+    /**
+     * Create an empty wheel at step 0.
+     */
+    public TimerWheel()
+    {
+        slots = new ArrayList<>(LEVELS * SLOTS);
+        for(int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+        overflow = new ArrayList<>();
+        now = 0;
+        size = 0;
+    }
+
+    /**
+     * Hold an item until the given step. An item due in a step the wheel
+     * has already reached is handed out in the next one.
+     *
+     * @param item The item to be held.
+     * @param dueStep The step the item is due in.
+     */
+    public void schedule(E item, long dueStep)
+    {
+        insert(new Entry<>(item, Math.max(dueStep, now + 1)));
+        size++;
+    }
+
+    /**
+     * Move the wheel on to the given step, and hand out every item due
+     * in the steps passed on the way, in order of step.
+     *
+     * @param step The step to move to.
+     * @param due A list to receive the items that are due.
+     */
+    public void advance(long step, List<E> due)
+    {
+        while(now < step) {
+            now++;
+            // Move the items of any higher slot starting now down a level,
+            // highest first.
+            for(int level = LEVELS - 1; level > 0; level--) {
+                if((now & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                    cascade(slots.get(level * SLOTS + slotOf(now, level)));
+                }
+            }
+            if((now & ((1L << (LEVELS * SLOT_BITS)) - 1)) == 0) {
+                cascade(overflow);
+            }
+            List<Entry<E>> slot = slots.get(slotOf(now, 0));
+            for(Entry<E> entry : slot) {
+                due.add(entry.item);
+            }
+            size -= slot.size();
+            slot.clear();
+        }
+    }
+
+    /**
+     * Drop every item and go back to step 0.
+     */
+    public void clear()
+    {
+        for(List<Entry<E>> slot : slots) {
+            slot.clear();
+        }
+        overflow.clear();
+        now = 0;
+        size = 0;
+    }
+
+    /**
+     * Return the number of items held.
+     *
+     * @return The number of items waiting to be due.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Put an item in the slot for its step, on the lowest level whose
+     * current run of slots includes that step.
+     *
+     * @param entry The item and its step.
+     */
+    private void insert(Entry<E> entry)
+    {
+        for(int level = 0; level < LEVELS; level++) {
+            int shift = (level + 1) * SLOT_BITS;
+            if((entry.dueStep >>> shift) == (now >>> shift)) {
+                slots.get(level * SLOTS + slotOf(entry.dueStep, level)).add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    /**
+     * Take every item out of a slot and put it again where it now belongs.
+     *
+     * @param slot The slot to be emptied.
+     */
+    private void cascade(List<Entry<E>> slot)
+    {
+        if(slot.isEmpty()) {
+            return;
+        }
+        List<Entry<E>> entries = new ArrayList<>(slot);
+        slot.clear();
+        for(Entry<E> entry : entries) {
+            insert(entry);
+        }
+    }
+
+    /**
+     * Return the slot of a step on a level.
+     *
+     * @param step The step.
+     * @param level The level.
+     *
+     * @return The index of the slot within the level.
+     */
+    private static int slotOf(long step, int level)
+    {
+        return (int) (step >>> (level * SLOT_BITS)) & (SLOTS - 1);
+    }
+
+    /**
+     * An item held by the wheel, and the step it is due in.
+     */
+    private static class Entry<E>
+    {
+        // The item.
+        private E item;
+        // The step the item is due in.
+        private long dueStep;
+
+        /**
+         * Create an entry.
+         *
+         * @param item The item.
+         * @param dueStep The step the item is due in.
+         */
+        public Entry(E item, long dueStep)
+        {
+            this.item = item;
+            this.dueStep = dueStep;
+        }
+    }
+}
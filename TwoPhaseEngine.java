@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A step engine that runs each step in two phases. In the first phase
+ * every actor plans what it means to do against the field as it was at
+ * the start of the step, on several threads; neither the field nor the
+ * actors are changed, only the intents.
+ * In the second phase the intents are committed one by one, in an order
+ * drawn at random for each step, and conflicts go to whichever intent
+ * comes first: a later actor finds its cell taken or its meal gone.
+ *
+ * The outcome of a step does not depend on the order of the list of
+ * actors, nor on the number of threads. Each step draws a seed from a
+ * random stream split off the shared one; each actor plans with its own
+ * stream, seeded from that seed and the cell it stands in, and the
+ * commit order only depends on the same two things.
+ *
+ * @author Ivan Arabadzhiev and Adonis Daskalopulos
+ * @version 2021.03.03
+ */
+public class TwoPhaseEngine implements StepEngine
+{
+    // Class variables.
+
+    // The number of actors planned by one task.
+    private static final int BATCH_SIZE = 256;
+
+    // Instance fields.
+
+    // The threads planning the intents.
+    private ForkJoinPool pool;
+
+    /**
+     * Create an engine using all available processors.
+     */
+    public TwoPhaseEngine()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an engine using the given number of threads.
+     *
+     * @param threads The number of threads.
+     */
+    public TwoPhaseEngine(int threads)
+    {
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Let every living actor plan, then commit the plans in a random order.
+     *
+     * @param actors The actors of the simulation. The newborn ones are
+     *               added to the end, in order of commit.
+     * @param field The field the actors live in.
+     * @param isDay The time of day.
+     * @param temperature The temperature of the surrounding.
+     *
+     * @return The position of the first newborn actor in the list.
+     */
+    public int step(ActorList actors, Field field, boolean isDay, double temperature)
+    {
+        long stepSeed = Randomizer.split().nextLong();
+        List<Intent> intents = new ArrayList<>(actors.size());
+        for(Actor actor : actors) {
+            if(actor != null && actor.isAlive()) {
+                intents.add(new Intent(actor, Randomizer.mix(stepSeed ^ actor.getCell())));
+            }
+        }
+
+        // Plan: the actors only read the field.
+        Intent[] planned = intents.toArray(new Intent[0]);
+        int batches = (planned.length + BATCH_SIZE - 1) / BATCH_SIZE;
+        pool.invoke(new PlanTask(planned, 0, batches, isDay, temperature));
+
+        // Commit: one at a time, in order of priority.
+        Arrays.sort(planned, Comparator.comparingLong(Intent::getPriority));
+        int born = actors.size();
+        for(Intent intent : planned) {
+            intent.commit(actors);
+        }
+        return born;
+    }
+
+    /**
+     * Shut down the planning threads.
+     */
+    public void close()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Let one batch of actors plan, each drawing from its own
+     * random stream. An actor only has its intent while it plans.
+     *
+     * @param planned The intents of all actors.
+     * @param batch The index of the batch.
+     * @param isDay The time of day.
+     * @param temperature The temperature of the surrounding.
+     */
+    private void planBatch(Intent[] planned, int batch, boolean isDay, double temperature)
+    {
+        // Planning never adds actors; births are made when committing.
+        List<Actor> noActors = new ArrayList<>();
+        int end = Math.min(planned.length, (batch + 1) * BATCH_SIZE);
+        try {
+            for(int i = batch * BATCH_SIZE; i < end; i++) {
+                Actor actor = planned[i].getActor();
+                Randomizer.bind(new SplittableRandom(planned[i].getPriority()));
+                Intent.bind(planned[i]);
+                try {
+                    actor.act(noActors, isDay, temperature);
+                }
+                finally {
+                    Intent.unbind();
+                }
+            }
+        }
+        finally {
+            Randomizer.unbind();
+        }
+    }
+
+    /**
+     * Plans a range of batches, splitting it in halves to share it
+     * between the threads.
+     */
+    private class PlanTask extends RecursiveAction
+    {
+        // The version of the serialized form, which is never used.
+        private static final long serialVersionUID = 1L;
+        
+        // The intents of all actors.
+        private Intent[] planned;
+        // The range of batches of this task.
+        private int from, to;
+        // The time of day.
+        private boolean isDay;
+        // The temperature of the surrounding.
+        private double temperature;
+
+        /**
+         * Create a task planning the given range of batches.
+         *
+         * @param planned The intents of all actors.
+         * @param from The first batch of the range.
+         * @param to The batch after the range.
+         * @param isDay The time of day.
+         * @param temperature The temperature of the surrounding.
+         */
+        public PlanTask(Intent[] planned, int from, int to, boolean isDay, double temperature)
+        {
+            this.planned = planned;
+            this.from = from;
+            this.to = to;
+            this.isDay = isDay;
+            this.temperature = temperature;
+        }
+
+        /**
+         * Plan the batch if there is only one, or else split the range.
+         */
+        protected void compute()
+        {
+            if(to - from == 1) {
+                planBatch(planned, from, isDay, temperature);
+            }
+            else if(to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PlanTask(planned, from, middle, isDay, temperature),
+                          new PlanTask(planned, middle, to, isDay, temperature));
+            }
+        }
+    }
+}